@@ -0,0 +1,96 @@
+package com.smg.challenge.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.smg.challenge.controller.ProductController;
+import com.smg.challenge.dto.ProductRequest;
+import com.smg.challenge.dto.ProductResponse;
+import com.smg.challenge.mapper.ProductMapper;
+import com.smg.challenge.mapper.ProductMapperImpl;
+import com.smg.challenge.model.Product;
+import com.smg.challenge.model.ProductEvent;
+import com.smg.challenge.repository.ProductRepository;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import com.smg.challenge.service.ProductEventService;
+import com.smg.challenge.service.impl.ProductServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The whole create path from ProductController down to the outbox event, with the repository
+ * and event service mocked out, so only in-process CPU and allocation are measured. The mocks
+ * are stub-only and don't record invocations, so they don't grow the heap over a run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class CreateProductBenchmark {
+    private final ProductMapper productMapper = new ProductMapperImpl();
+    private final ProductRequest request = new ProductRequest("Benchmark Product", new BigDecimal("19.99"));
+
+    @Param({"JSON", "BINARY"})
+    private PayloadFormat payloadFormat;
+
+    @Param({"INFO", "WARN"})
+    private String logLevel;
+
+    private ProductServiceImpl productService;
+    private ProductController productController;
+
+    @Setup
+    public void setUp() {
+        BenchmarkLogging.configure(Level.toLevel(logLevel));
+
+        ProductRepository productRepository = mock(ProductRepository.class, withSettings().stubOnly());
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            product.setId(UUID.randomUUID());
+            return product;
+        });
+        ProductEventService productEventService = mock(ProductEventService.class, withSettings().stubOnly());
+        when(productEventService.save(any(ProductEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        productService = new ProductServiceImpl(productRepository, productEventService,
+                new ProductPayloadCodec(Jackson2ObjectMapperBuilder.json().build()), new SimpleMeterRegistry(),
+                new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(productService, "payloadFormat", payloadFormat);
+        productController = new ProductController(productService, null, null, null, null, Optional.empty(), productMapper, null);
+    }
+
+    @Benchmark
+    public Product serviceCreateProduct() {
+        return productService.createProduct(productMapper.toProduct(request));
+    }
+
+    @Benchmark
+    public ResponseEntity<ProductResponse> controllerCreateProduct() {
+        return productController.createProduct(request);
+    }
+}
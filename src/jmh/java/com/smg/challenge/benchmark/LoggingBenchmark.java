@@ -0,0 +1,78 @@
+package com.smg.challenge.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.smg.challenge.model.Product;
+import com.smg.challenge.model.ProductEvent;
+import com.smg.challenge.serialization.PayloadFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the Lombok toString() calls behind the create path's log statements, with the
+ * logger enabled (INFO) and disabled (WARN).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(LoggingBenchmark.class);
+
+    private final Product product = new Product(UUID.randomUUID(), "Benchmark Product", new BigDecimal("19.99"), Instant.now(), 0L);
+    private final ProductEvent event = ProductEvent.builder()
+            .id(UUID.randomUUID())
+            .aggregateType("Product")
+            .aggregateId(product.getId())
+            .eventType("ProductCreated")
+            .payload(new byte[52])
+            .payloadFormat(PayloadFormat.BINARY)
+            .createdAt(Instant.now())
+            .published(false)
+            .build();
+
+    @Param({"INFO", "WARN"})
+    private String level;
+
+    @Setup
+    public void setUp() {
+        BenchmarkLogging.configure(Level.toLevel(level));
+    }
+
+    @Benchmark
+    public String productToString() {
+        return product.toString();
+    }
+
+    @Benchmark
+    public String eventToString() {
+        return event.toString();
+    }
+
+    @Benchmark
+    public void logProduct() {
+        log.info("Creating product: {}", product);
+    }
+
+    @Benchmark
+    public void logEvent() {
+        log.info("Saving event: {}", event);
+    }
+}
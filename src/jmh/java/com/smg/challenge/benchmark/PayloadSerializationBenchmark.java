@@ -0,0 +1,57 @@
+package com.smg.challenge.benchmark;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of outbox payloads with the ObjectMapper defaults the application
+ * context uses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class PayloadSerializationBenchmark {
+    private final ProductPayloadCodec payloadCodec = new ProductPayloadCodec(Jackson2ObjectMapperBuilder.json().build());
+    private final Product product = new Product(UUID.randomUUID(), "Benchmark Product", new BigDecimal("19.99"), Instant.now(), 0L);
+
+    @Param({"JSON", "BINARY"})
+    private PayloadFormat format;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        payload = payloadCodec.encode(product, format);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return payloadCodec.encode(product, format);
+    }
+
+    @Benchmark
+    public Product decode() {
+        return payloadCodec.decode(payload, format);
+    }
+}
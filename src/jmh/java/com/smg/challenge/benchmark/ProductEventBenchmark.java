@@ -0,0 +1,58 @@
+package com.smg.challenge.benchmark;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.model.ProductEvent;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of the ProductCreated outbox event the way ProductServiceImpl builds it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ProductEventBenchmark {
+    private final ProductPayloadCodec payloadCodec = new ProductPayloadCodec(Jackson2ObjectMapperBuilder.json().build());
+    private final Product product = new Product(UUID.randomUUID(), "Benchmark Product", new BigDecimal("19.99"), Instant.now(), 0L);
+    private final byte[] payload = payloadCodec.encode(product, PayloadFormat.BINARY);
+
+    @Benchmark
+    public ProductEvent build() {
+        return buildEvent(payload);
+    }
+
+    @Benchmark
+    public ProductEvent encodeAndBuild() {
+        return buildEvent(payloadCodec.encode(product, PayloadFormat.BINARY));
+    }
+
+    private ProductEvent buildEvent(byte[] eventPayload) {
+        return ProductEvent.builder()
+                .aggregateType("Product")
+                .aggregateId(product.getId())
+                .eventType("ProductCreated")
+                .payload(eventPayload)
+                .payloadFormat(PayloadFormat.BINARY)
+                .createdAt(Instant.now())
+                .published(false)
+                .build();
+    }
+}
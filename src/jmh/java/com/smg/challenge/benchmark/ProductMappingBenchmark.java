@@ -0,0 +1,43 @@
+package com.smg.challenge.benchmark;
+
+import com.smg.challenge.dto.ProductRequest;
+import com.smg.challenge.dto.ProductResponse;
+import com.smg.challenge.mapper.ProductMapper;
+import com.smg.challenge.mapper.ProductMapperImpl;
+import com.smg.challenge.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ProductMappingBenchmark {
+    private final ProductMapper productMapper = new ProductMapperImpl();
+    private final ProductRequest request = new ProductRequest("Benchmark Product", new BigDecimal("19.99"));
+    private final Product product = new Product(UUID.randomUUID(), "Benchmark Product", new BigDecimal("19.99"), Instant.now(), 0L);
+
+    @Benchmark
+    public Product toProduct() {
+        return productMapper.toProduct(request);
+    }
+
+    @Benchmark
+    public ProductResponse toProductResponse() {
+        return productMapper.toProductResponse(product);
+    }
+}
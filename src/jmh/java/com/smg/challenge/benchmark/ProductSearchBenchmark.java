@@ -0,0 +1,96 @@
+package com.smg.challenge.benchmark;
+
+import com.smg.challenge.dto.ProductSearchHit;
+import com.smg.challenge.service.search.ProductNameIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the product name search index over a synthetic catalog. The trial setup
+ * builds the index and logs build time, the index's own size estimate and the heap it
+ * retains after a full GC. Catalog size with {@code -p products=...}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class ProductSearchBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchBenchmark.class);
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ne", "ru", "sa", "ti", "vo", "xe", "zu",
+            "bra", "cle", "dri", "flo", "gru", "pla", "sto", "tre", "vi", "wo"};
+
+    @Param({"5000000"})
+    private int products;
+
+    // One letter, a full word plus a short prefix, and a model number prefix
+    @Param({"k", "kalo mi", "blue sh", "m12"})
+    private String query;
+
+    private ProductNameIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkLogging.configure(ch.qos.logback.classic.Level.INFO, System.out);
+        Random random = new Random(42);
+        String[] words = new String[20_000];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 0, n = 2 + random.nextInt(2); s < n; s++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words[i] = word.toString();
+        }
+        words[0] = "blue";
+        words[1] = "shoes";
+
+        long heapBefore = usedHeapAfterGc();
+        long start = System.nanoTime();
+        index = new ProductNameIndex();
+        for (int i = 0; i < products; i++) {
+            String name = capitalize(words[random.nextInt(words.length)]) + " "
+                    + words[random.nextInt(words.length)] + " "
+                    + words[random.nextInt(words.length)] + " M" + random.nextInt(100_000);
+            index.upsert(new UUID(random.nextLong(), random.nextLong()), name, 0);
+        }
+        index.trimToSize();
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long retained = usedHeapAfterGc() - heapBefore;
+        log.info("Search index of {} products, {} terms: built in {} ms, estimated {} MB, retained heap {} MB",
+                index.size(), index.termCount(), buildMillis, index.estimatedBytes() >> 20, retained >> 20);
+    }
+
+    @Benchmark
+    public List<ProductSearchHit> search() {
+        return index.search(query, 10);
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
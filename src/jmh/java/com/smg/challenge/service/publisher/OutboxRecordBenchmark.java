@@ -0,0 +1,73 @@
+package com.smg.challenge.service.publisher;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.model.ProductEvent;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per published event cost of turning a claimed outbox row into the bytes handed to the Kafka producer.
+ * Lives in the publisher package because {@link OutboxRecords} is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class OutboxRecordBenchmark {
+    private final ProductPayloadCodec payloadCodec = new ProductPayloadCodec(Jackson2ObjectMapperBuilder.json().build());
+    private final ByteArraySerializer serializer = new ByteArraySerializer();
+
+    @Param({"JSON", "BINARY"})
+    private PayloadFormat storedFormat;
+
+    @Param({"JSON", "BINARY"})
+    private PayloadFormat topicFormat;
+
+    private ProductEvent event;
+
+    @Setup
+    public void setUp() {
+        Product product = new Product(UUID.randomUUID(), "Benchmark Product", new BigDecimal("19.99"), Instant.now(), 0L);
+        event = ProductEvent.builder()
+                .id(UUID.randomUUID())
+                .aggregateType("Product")
+                .aggregateId(product.getId())
+                .eventType("ProductCreated")
+                .payload(payloadCodec.encode(product, storedFormat))
+                .payloadFormat(storedFormat)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    @Benchmark
+    public ProducerRecord<String, byte[]> toRecord() {
+        return OutboxRecords.toRecord(event, payloadCodec, topicFormat);
+    }
+
+    @Benchmark
+    public byte[] toRecordAndSerialize() {
+        ProducerRecord<String, byte[]> producerRecord = OutboxRecords.toRecord(event, payloadCodec, topicFormat);
+        return serializer.serialize(producerRecord.topic(), producerRecord.headers(), producerRecord.value());
+    }
+}
@@ -0,0 +1,72 @@
+package com.smg.challenge.config;
+
+import com.smg.challenge.controller.ProductController;
+import com.smg.challenge.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+/**
+ * Keeps the create path out of lazy initialization, so the first POST /v1/product does not pay
+ * for the controller, the JPA bootstrap and Liquibase behind the product service, or the Kafka
+ * producer. Everything else stays lazy. Turned off with product.startup.eager-create-path=false.
+ */
+@Slf4j
+@Configuration
+public class StartupConfig {
+    private final ObjectProvider<KafkaTemplate<String, byte[]>> kafkaTemplate;
+
+    @Value("${product.startup.eager-create-path:true}")
+    private boolean eagerCreatePath;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    public StartupConfig(ObjectProvider<KafkaTemplate<String, byte[]>> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    // Static, as it is applied by a bean factory post-processor before any other bean exists
+    @Bean
+    @ConditionalOnProperty(value = "product.startup.eager-create-path", havingValue = "true", matchIfMissing = true)
+    static LazyInitializationExcludeFilter createPathExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(ProductController.class, ProductService.class,
+                ProducerFactory.class, KafkaTemplate.class);
+    }
+
+    /**
+     * The producer factory creates its producer, and the producer fetches the topic metadata, on
+     * the first send. Does both in the background once the application is ready, so they neither
+     * delay startup nor the first publish.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpProducer() {
+        if (!eagerCreatePath) {
+            return;
+        }
+        Runnable warmUp = () -> {
+            long start = System.nanoTime();
+            try {
+                int partitions = kafkaTemplate.getObject().partitionsFor("products").size();
+                log.debug("Kafka producer ready for {} partitions of products in {} ms",
+                        partitions, (System.nanoTime() - start) / 1_000_000);
+            } catch (RuntimeException e) {
+                // The first send connects again, this only loses the head start
+                log.warn("Could not warm up the Kafka producer: {}", e.getMessage());
+            }
+        };
+        if (virtualThreads) {
+            Thread.ofVirtual().name("kafka-producer-warmup").start(warmUp);
+        } else {
+            Thread.ofPlatform().name("kafka-producer-warmup").daemon(true).start(warmUp);
+        }
+    }
+}
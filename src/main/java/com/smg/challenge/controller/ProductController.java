@@ -1,19 +1,54 @@
 package com.smg.challenge.controller;
 
+import com.smg.challenge.dto.ProductBatchItemResult;
+import com.smg.challenge.dto.ProductBatchResponse;
+import com.smg.challenge.dto.ProductCursor;
+import com.smg.challenge.dto.ProductImportFormat;
+import com.smg.challenge.dto.ProductImportReport;
+import com.smg.challenge.dto.ProductPageResponse;
+import com.smg.challenge.dto.ProductPriceRangeResponse;
+import com.smg.challenge.dto.ProductPriceStatsResponse;
 import com.smg.challenge.dto.ProductRequest;
 import com.smg.challenge.dto.ProductResponse;
+import com.smg.challenge.dto.ProductSearchResponse;
+import com.smg.challenge.dto.ProductUpdateRequest;
+import com.smg.challenge.exception.GenericException;
 import com.smg.challenge.mapper.ProductMapper;
+import com.smg.challenge.validation.ProductRequestValidator;
 import com.smg.challenge.model.Product;
+import com.smg.challenge.service.ProductCatalogService;
+import com.smg.challenge.service.ProductExportService;
+import com.smg.challenge.service.ProductImportService;
+import com.smg.challenge.service.ProductPriceService;
+import com.smg.challenge.service.ProductSearchService;
 import com.smg.challenge.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Slf4j
 @RestController
@@ -21,11 +56,43 @@ import org.springframework.web.bind.annotation.RestController;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final ProductSearchService productSearchService;
+    private final ProductPriceService productPriceService;
+    // Only present with product.catalog.enabled
+    private final ProductCatalogService productCatalogService;
     private final ProductMapper productMapper;
+    private final ProductRequestValidator productRequestValidator;
+
+    @Value("${product.page.max-limit:500}")
+    private int maxPageLimit;
+
+    @Value("${product.search.max-limit:100}")
+    private int maxSearchLimit;
+
+    @Value("${product.price.max-limit:500}")
+    private int maxPriceLimit;
+
+    @Value("${product.catalog.serve-reads:false}")
+    private boolean catalogReads;
 
-    public ProductController(ProductService productService, ProductMapper productMapper) {
+    public ProductController(ProductService productService,
+                             ProductImportService productImportService,
+                             ProductExportService productExportService,
+                             ProductSearchService productSearchService,
+                             ProductPriceService productPriceService,
+                             Optional<ProductCatalogService> productCatalogService,
+                             ProductMapper productMapper,
+                             ProductRequestValidator productRequestValidator) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.productExportService = productExportService;
+        this.productSearchService = productSearchService;
+        this.productPriceService = productPriceService;
+        this.productCatalogService = productCatalogService.orElse(null);
         this.productMapper = productMapper;
+        this.productRequestValidator = productRequestValidator;
     }
 
     @PostMapping
@@ -54,7 +121,7 @@ public class ProductController {
                                     examples = @io.swagger.v3.oas.annotations.media.ExampleObject(
                                             name = "ProductResponse Example",
                                             summary = "A valid response example",
-                                            value = "{\n  \"id\": \"2d535b60-2bc0-490b-9ab0-46499c333cc1\",\n  \"name\": \"Test Product\",\n  \"price\": 19.99,\n  \"createdAt\": \"2024-08-09T00:00:00Z\"\n}"
+                                            value = "{\n  \"id\": \"2d535b60-2bc0-490b-9ab0-46499c333cc1\",\n  \"name\": \"Test Product\",\n  \"price\": 19.99,\n  \"createdAt\": \"2024-08-09T00:00:00Z\",\n  \"version\": 0\n}"
                                     )
                             )
                     ),
@@ -71,4 +138,297 @@ public class ProductController {
         log.info("Created product: {}", response);
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping
+    @Operation(
+            summary = "List Products",
+            description = "Lists products ordered by creation time. Pass the returned nextCursor as 'after' to get the next page; "
+                    + "nextCursor is null on the last page. No total count is computed.",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Page of products"),
+                    @ApiResponse(responseCode = "400", description = "Invalid cursor or limit"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+
+    public ResponseEntity<ProductPageResponse> listProducts(@RequestParam(required = false) String after,
+                                                            @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > maxPageLimit) {
+            throw new GenericException("Limit must be between 1 and " + maxPageLimit, null);
+        }
+        ProductCursor cursor = after == null || after.isBlank() ? null : ProductCursor.decode(after);
+        // One extra row tells whether there is a next page without counting
+        List<Product> products = cursor == null
+                ? productService.listProducts(null, null, limit + 1)
+                : productService.listProducts(cursor.createdAt(), cursor.id(), limit + 1);
+
+        List<Product> page = products.size() > limit ? products.subList(0, limit) : products;
+        String nextCursor = null;
+        if (products.size() > limit) {
+            Product last = page.getLast();
+            nextCursor = new ProductCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        List<ProductResponse> items = page.stream().map(productMapper::toProductResponse).toList();
+        return ResponseEntity.ok(new ProductPageResponse(items, nextCursor));
+    }
+
+    @GetMapping("/search")
+    @Operation(
+            summary = "Search Products",
+            description = "Finds products whose names contain every word of 'q', the last one as a prefix, "
+                    + "e.g. 'red sho' finds 'Red Shoes'. Case-insensitive, served from an in-memory index, not ranked.",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Matching products"),
+                    @ApiResponse(responseCode = "400", description = "Missing query or invalid limit"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+
+    public ResponseEntity<ProductSearchResponse> searchProducts(@RequestParam String q,
+                                                                @RequestParam(defaultValue = "10") int limit) {
+        if (q.isBlank()) {
+            throw new GenericException("Query must not be blank", null);
+        }
+        if (limit < 1 || limit > maxSearchLimit) {
+            throw new GenericException("Limit must be between 1 and " + maxSearchLimit, null);
+        }
+        return ResponseEntity.ok(new ProductSearchResponse(productSearchService.searchProducts(q, limit)));
+    }
+
+    @GetMapping("/prices")
+    @Operation(
+            summary = "Products by Price Range",
+            description = "Lists products priced from 'min' to 'max', both inclusive, cheapest first, with the total number "
+                    + "in the range. Served from an in-memory price index.",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Products in the range"),
+                    @ApiResponse(responseCode = "400", description = "Invalid range or limit"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+
+    public ResponseEntity<ProductPriceRangeResponse> findByPriceRange(@RequestParam BigDecimal min,
+                                                                      @RequestParam BigDecimal max,
+                                                                      @RequestParam(defaultValue = "50") int limit) {
+        if (min.signum() < 0 || min.compareTo(max) > 0) {
+            throw new GenericException("Range must satisfy 0 <= min <= max", null);
+        }
+        if (limit < 1 || limit > maxPriceLimit) {
+            throw new GenericException("Limit must be between 1 and " + maxPriceLimit, null);
+        }
+        return ResponseEntity.ok(productPriceService.findByPriceRange(min, max, limit));
+    }
+
+    @GetMapping("/prices/stats")
+    @Operation(
+            summary = "Price Statistics",
+            description = "Count, minimum, maximum, average and nearest-rank percentiles of all product prices, "
+                    + "e.g. percentiles=50,90,99. Served from an in-memory price index.",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Price statistics"),
+                    @ApiResponse(responseCode = "400", description = "Percentile outside 0 to 100"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+
+    public ResponseEntity<ProductPriceStatsResponse> priceStats(@RequestParam(defaultValue = "50,90,99") List<Double> percentiles) {
+        if (percentiles.stream().anyMatch(percentile -> !(percentile >= 0 && percentile <= 100))) {
+            throw new GenericException("Percentiles must be between 0 and 100", null);
+        }
+        return ResponseEntity.ok(productPriceService.priceStats(percentiles));
+    }
+
+    @GetMapping("/export")
+    @Operation(
+            summary = "Export Products",
+            description = "Streams the whole catalog as gzip-compressed NDJSON, one product per line",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Catalog stream"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        log.info("Exporting product catalog");
+        StreamingResponseBody body = productExportService::exportProducts;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.ndjson.gz\"")
+                .body(body);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(
+            summary = "Get Product",
+            description = "Returns a product by its id. With product.catalog.serve-reads the local catalog answers, "
+                    + "which trails the database; pass minVersion, e.g. the version a write returned, to read the "
+                    + "product at that version or later.",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Product found",
+                            content = @io.swagger.v3.oas.annotations.media.Content(
+                                    mediaType = "application/json",
+                                    examples = @io.swagger.v3.oas.annotations.media.ExampleObject(
+                                            name = "ProductResponse Example",
+                                            summary = "A valid response example",
+                                            value = "{\n  \"id\": \"2d535b60-2bc0-490b-9ab0-46499c333cc1\",\n  \"name\": \"Test Product\",\n  \"price\": 19.99,\n  \"createdAt\": \"2024-08-09T00:00:00Z\",\n  \"version\": 0\n}"
+                                    )
+                            )
+                    ),
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+
+    public ResponseEntity<ProductResponse> getProduct(@PathVariable UUID id,
+                                                     @RequestParam(required = false) Long minVersion) {
+        // The local catalog trails the database by the outbox and consumer lag, so it answers only
+        // when enabled for reads and at least as new as the caller asks; anything else is read from the database
+        Product product = catalogReads && productCatalogService != null
+                ? productCatalogService.findProduct(id)
+                        .filter(found -> minVersion == null || found.getVersion() != null && found.getVersion() >= minVersion)
+                        .orElse(null)
+                : null;
+        if (product == null) {
+            product = productService.getProduct(id);
+        }
+        return ResponseEntity.ok(productMapper.toProductResponse(product));
+    }
+
+    @PutMapping("/{id}")
+    @Operation(
+            summary = "Update Product",
+            description = "Replaces name and price of a product. The request carries the version the client last read; "
+                    + "if the product changed since then nothing is written and 409 is returned.",
+            tags = {"Product"},
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Product update request",
+                    required = true,
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            mediaType = "application/json",
+                            examples = @io.swagger.v3.oas.annotations.media.ExampleObject(
+                                    name = "ProductUpdateRequest Example",
+                                    summary = "A valid request example",
+                                    value = "{\n  \"name\": \"Test Product\",\n  \"price\": 17.49,\n  \"version\": 0\n}"
+                            )
+                    )
+            ),
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully updated product"),
+                    @ApiResponse(responseCode = "400", description = "Invalid request data"),
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "409", description = "Product was changed by someone else"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+
+    public ResponseEntity<ProductResponse> updateProduct(@PathVariable UUID id, @Valid @RequestBody ProductUpdateRequest request) {
+        log.info("Updating product {} at version {}", id, request.version());
+        Product updated = productService.updateProduct(id, productMapper.toProduct(request), request.version());
+        return ResponseEntity.ok(productMapper.toProductResponse(updated));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(
+            summary = "Delete Product",
+            description = "Deletes a product. With 'version' the delete only happens if the product is still at that version.",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Product deleted"),
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "409", description = "Product was changed by someone else"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+
+    public ResponseEntity<Void> deleteProduct(@PathVariable UUID id, @RequestParam(required = false) Long version) {
+        log.info("Deleting product {}", id);
+        productService.deleteProduct(id, version);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/batch")
+    @Operation(
+            summary = "Create Products in batch",
+            description = "Validates each product individually and creates all valid ones in a single transaction",
+            tags = {"Product"},
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "List of product create requests",
+                    required = true,
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            mediaType = "application/json",
+                            examples = @io.swagger.v3.oas.annotations.media.ExampleObject(
+                                    name = "ProductRequest batch Example",
+                                    summary = "A batch with one valid and one invalid item",
+                                    value = "[\n  {\n    \"name\": \"Test Product\",\n    \"price\": 18.99\n  },\n  {\n    \"name\": \"\",\n    \"price\": 0\n  }\n]"
+                            )
+                    )
+            ),
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Batch processed, per-item results returned"),
+                    @ApiResponse(responseCode = "400", description = "Invalid request data"),
+                    @ApiResponse(responseCode = "413", description = "More items than product.batch.max-size"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+
+    public ResponseEntity<ProductBatchResponse> createProducts(@RequestBody List<ProductRequest> requests) {
+        log.info("Creating product batch of {} items", requests.size());
+        List<ProductBatchItemResult> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<Integer> validIndexes = new ArrayList<>(requests.size());
+        List<Product> products = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ProductRequest request = requests.get(i);
+            List<String> errors = productRequestValidator.validate(request);
+            if (errors.isEmpty()) {
+                validIndexes.add(i);
+                products.add(productMapper.toProduct(request));
+            } else {
+                results.set(i, new ProductBatchItemResult(i, false, null, errors));
+            }
+        }
+
+        if (!products.isEmpty()) {
+            List<Product> created = productService.createProducts(products);
+            for (int i = 0; i < created.size(); i++) {
+                int index = validIndexes.get(i);
+                results.set(index, new ProductBatchItemResult(index, true,
+                        productMapper.toProductResponse(created.get(i)), List.of()));
+            }
+        }
+
+        ProductBatchResponse response = new ProductBatchResponse(products.size(), requests.size() - products.size(), results);
+        log.info("Created product batch: {} created, {} rejected", response.created(), response.rejected());
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    @Operation(
+            summary = "Import Products",
+            description = "Streams products from an NDJSON body (one ProductRequest per line) or a CSV body with a "
+                    + "name,price header. Records are validated one by one and written in chunks; the report lists "
+                    + "the rejected lines.",
+            tags = {"Product"},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Import finished, report returned"),
+                    @ApiResponse(responseCode = "400", description = "Unreadable stream or CSV header"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+
+    public ResponseEntity<ProductImportReport> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                              InputStream body) {
+        ProductImportFormat format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? ProductImportFormat.CSV
+                : ProductImportFormat.NDJSON;
+        log.info("Importing products from {} stream", format);
+        return ResponseEntity.ok(productImportService.importProducts(body, format));
+    }
 }
@@ -0,0 +1,10 @@
+package com.smg.challenge.dto;
+
+import java.util.List;
+
+public record ProductBatchItemResult(
+        int index,
+        boolean created,
+        ProductResponse product,
+        List<String> errors
+) {}
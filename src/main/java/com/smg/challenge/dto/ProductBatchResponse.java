@@ -0,0 +1,9 @@
+package com.smg.challenge.dto;
+
+import java.util.List;
+
+public record ProductBatchResponse(
+        int created,
+        int rejected,
+        List<ProductBatchItemResult> results
+) {}
@@ -0,0 +1,39 @@
+package com.smg.challenge.dto;
+
+import com.smg.challenge.exception.GenericException;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in the product listing, ordered by (createdAt, id). Clients get it as an
+ * opaque URL-safe token and must not rely on its content.
+ */
+public record ProductCursor(Instant createdAt, UUID id) {
+    private static final int ENCODED_LENGTH = 8 + 4 + 16;
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_LENGTH);
+        buffer.putLong(createdAt.getEpochSecond());
+        buffer.putInt(createdAt.getNano());
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public static ProductCursor decode(String cursor) {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != ENCODED_LENGTH) {
+                throw new IllegalArgumentException("Unexpected cursor length " + bytes.length);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            Instant createdAt = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            return new ProductCursor(createdAt, new UUID(buffer.getLong(), buffer.getLong()));
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            throw new GenericException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.smg.challenge.dto;
+
+import java.util.List;
+
+public record ProductImportError(
+        long fromLine,
+        long toLine,
+        List<String> errors
+) {}
@@ -0,0 +1,6 @@
+package com.smg.challenge.dto;
+
+public enum ProductImportFormat {
+    NDJSON,
+    CSV
+}
@@ -0,0 +1,13 @@
+package com.smg.challenge.dto;
+
+import java.util.List;
+
+public record ProductImportReport(
+        long recordsRead,
+        long created,
+        long rejected,
+        int chunksCommitted,
+        int chunksFailed,
+        List<ProductImportError> errors,
+        boolean errorsTruncated
+) {}
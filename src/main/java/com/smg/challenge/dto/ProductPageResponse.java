@@ -0,0 +1,8 @@
+package com.smg.challenge.dto;
+
+import java.util.List;
+
+public record ProductPageResponse(
+        List<ProductResponse> items,
+        String nextCursor
+) {}
@@ -0,0 +1,9 @@
+package com.smg.challenge.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record ProductPriceHit(
+        UUID id,
+        BigDecimal price
+) {}
@@ -0,0 +1,8 @@
+package com.smg.challenge.dto;
+
+import java.util.List;
+
+public record ProductPriceRangeResponse(
+        int total,
+        List<ProductPriceHit> items
+) {}
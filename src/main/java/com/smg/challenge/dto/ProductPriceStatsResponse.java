@@ -0,0 +1,12 @@
+package com.smg.challenge.dto;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public record ProductPriceStatsResponse(
+        int count,
+        BigDecimal min,
+        BigDecimal max,
+        BigDecimal average,
+        Map<String, BigDecimal> percentiles
+) {}
@@ -3,11 +3,13 @@ package com.smg.challenge.dto;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import java.math.BigDecimal;
 
 public record ProductRequest(
         @NotBlank(message = "Name must not be blank")
+        @Size(max = 100, message = "Name must be at most 100 characters")
         String name,
         @NotNull(message = "Price is required")
         @DecimalMin(value = "0.0", inclusive = false, message = "Price must be greater than zero")
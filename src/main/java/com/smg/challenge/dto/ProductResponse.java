@@ -8,5 +8,6 @@ public record ProductResponse(
     UUID id,
     String name,
     BigDecimal price,
-    Instant createdAt
+    Instant createdAt,
+    Long version
 ) {}
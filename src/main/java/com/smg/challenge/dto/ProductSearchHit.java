@@ -0,0 +1,8 @@
+package com.smg.challenge.dto;
+
+import java.util.UUID;
+
+public record ProductSearchHit(
+        UUID id,
+        String name
+) {}
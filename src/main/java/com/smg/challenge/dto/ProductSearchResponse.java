@@ -0,0 +1,7 @@
+package com.smg.challenge.dto;
+
+import java.util.List;
+
+public record ProductSearchResponse(
+        List<ProductSearchHit> items
+) {}
@@ -24,6 +24,37 @@ public class GlobalExceptionHandler {
                 .body("Validation ex: " + ex.getMessage());
     }
 
+    @ExceptionHandler(ProductBatchTooLargeException.class)
+    public ResponseEntity<String> handleProductBatchTooLarge(ProductBatchTooLargeException ex) {
+        log.debug("Batch too large: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body("Batch too large: " + ex.getMessage());
+    }
+
+    @ExceptionHandler(ProductNotFoundException.class)
+    public ResponseEntity<String> handleProductNotFound(ProductNotFoundException ex) {
+        log.debug("Not found: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body("Not found: " + ex.getMessage());
+    }
+
+    /**
+     * Part of the export is already sent, so no error body can follow. Rethrown to the servlet
+     * container, which closes the connection instead of ending the chunked body, so the client
+     * sees a broken transfer rather than a short but complete file.
+     */
+    @ExceptionHandler(ProductExportAbortedException.class)
+    public void handleProductExportAborted(ProductExportAbortedException ex) {
+        throw ex;
+    }
+
+    @ExceptionHandler(ProductConflictException.class)
+    public ResponseEntity<String> handleProductConflict(ProductConflictException ex) {
+        log.debug("Conflict: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("Conflict: " + ex.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleException(Exception ex) {
         log.error("Unexpected error: {}", ex.getMessage(), ex);
@@ -0,0 +1,8 @@
+package com.smg.challenge.exception;
+
+public class ProductBatchTooLargeException extends GenericException {
+    public ProductBatchTooLargeException(String message) {
+        super(message, null);
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.smg.challenge.exception;
+
+public class ProductConflictException extends GenericException {
+    public ProductConflictException(String message) {
+        super(message, null);
+    }
+
+}
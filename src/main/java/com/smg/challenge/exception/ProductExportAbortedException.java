@@ -0,0 +1,8 @@
+package com.smg.challenge.exception;
+
+public class ProductExportAbortedException extends GenericException {
+    public ProductExportAbortedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
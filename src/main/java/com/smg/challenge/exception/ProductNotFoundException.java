@@ -0,0 +1,8 @@
+package com.smg.challenge.exception;
+
+public class ProductNotFoundException extends GenericException {
+    public ProductNotFoundException(String message) {
+        super(message, null);
+    }
+
+}
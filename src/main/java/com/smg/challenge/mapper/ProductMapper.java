@@ -2,14 +2,25 @@ package com.smg.challenge.mapper;
 
 import com.smg.challenge.dto.ProductRequest;
 import com.smg.challenge.dto.ProductResponse;
+import com.smg.challenge.dto.ProductUpdateRequest;
 import com.smg.challenge.model.Product;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface ProductMapper {
 
+    // id, createdAt and version are assigned on save; an update passes its expected version separately
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Product toProduct(ProductRequest request);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    Product toProduct(ProductUpdateRequest request);
+
     ProductResponse toProductResponse(Product product);
 
 }
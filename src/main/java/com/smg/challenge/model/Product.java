@@ -27,4 +27,9 @@ public class Product {
 
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
+
+    // Optimistic lock: updates and deletes only go through WHERE version = the version read
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
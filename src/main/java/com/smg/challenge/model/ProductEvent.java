@@ -1,7 +1,10 @@
 package com.smg.challenge.model;
 
+import com.smg.challenge.serialization.PayloadFormat;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
@@ -13,6 +16,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -41,9 +45,18 @@ public class ProductEvent {
     @Column(name = "event_type", nullable = false, length = 50)
     private String eventType; // e.g. "ProductCreated"
 
-    @NotBlank(message = "Payload is required")
-    @Column(name = "payload", columnDefinition = "TEXT", nullable = false)
-    private String payload;
+    @NotNull(message = "Payload is required")
+    @ToString.Exclude // encoded body, kept out of log lines
+    @Column(name = "payload", columnDefinition = "BYTEA", nullable = false)
+    private byte[] payload;
+
+    @NotNull(message = "Payload format is required")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payload_format", nullable = false, length = 10)
+    private PayloadFormat payloadFormat; // e.g. BINARY
+
+    @Column(name = "payload_schema_version")
+    private Integer payloadSchemaVersion; // binary schema of the payload, null for JSON and binary schema version 1
 
     @Column(name = "published", nullable = false)
     private boolean published = false;
@@ -52,4 +65,22 @@ public class ProductEvent {
     @NotNull(message = "Created date is required")
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt = Instant.now();
+
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner; // publisher instance currently holding the event
+
+    @Column(name = "lease_expires_at")
+    private Instant leaseExpiresAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts; // failed sends so far
+
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt; // not claimed before, set after a failed send
+
+    @Column(name = "dead_lettered_at")
+    private Instant deadLetteredAt; // given up on, never claimed again
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
 }
\ No newline at end of file
@@ -3,9 +3,14 @@ package com.smg.challenge.repository;
 import com.smg.challenge.model.ProductEvent;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface ProductEventRepository extends JpaRepository<ProductEvent, UUID> {
@@ -13,4 +18,79 @@ public interface ProductEventRepository extends JpaRepository<ProductEvent, UUID
     
     @Query("SELECT e FROM ProductEvent e WHERE e.published = false ORDER BY e.createdAt ASC")
     List<ProductEvent> findTopUnpublishedOrderByCreatedAt(Pageable pageable);
+
+    // An event is held back while an earlier event of the same product waits for its retry or is
+    // leased by a worker, so an event never reaches the topic after a later state of its product
+    // and two workers never send the same product at once. A lease is only visible once its claim
+    // commits, so a claim also takes a transaction-level advisory lock per product and skips the
+    // products another claim holds
+    @Query(value = """
+            SELECT * FROM product_event e
+            WHERE e.published = false
+              AND e.dead_lettered_at IS NULL
+              AND (e.lease_expires_at IS NULL OR e.lease_expires_at < :now)
+              AND (e.next_attempt_at IS NULL OR e.next_attempt_at <= :now)
+              AND pg_try_advisory_xact_lock(hashtext(e.aggregate_id::text))
+              AND NOT EXISTS (
+                  SELECT 1 FROM product_event r
+                  WHERE r.aggregate_id = e.aggregate_id
+                    AND r.published = false
+                    AND r.created_at < e.created_at
+                    AND (r.next_attempt_at > :now OR r.lease_expires_at >= :now))
+            ORDER BY e.created_at ASC
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+    List<ProductEvent> lockClaimable(@Param("now") Instant now, @Param("limit") int limit);
+
+    // Run after lockClaimable in the same transaction: its statement snapshot may predate the commit
+    // of a claim that held a product's advisory lock, this one sees that claim's leases
+    @Query(value = """
+            SELECT e.id FROM product_event e
+            WHERE e.id IN (:ids)
+              AND EXISTS (
+                  SELECT 1 FROM product_event r
+                  WHERE r.aggregate_id = e.aggregate_id
+                    AND r.published = false
+                    AND r.created_at < e.created_at
+                    AND r.id NOT IN (:ids)
+                    AND (r.next_attempt_at > :now OR r.lease_expires_at >= :now))""", nativeQuery = true)
+    List<UUID> findHeldBack(@Param("ids") Collection<UUID> ids, @Param("now") Instant now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ProductEvent e SET e.leaseOwner = :owner, e.leaseExpiresAt = :expiresAt WHERE e.id IN :ids")
+    int lease(@Param("ids") Collection<UUID> ids, @Param("owner") String owner, @Param("expiresAt") Instant expiresAt);
+
+    @Modifying
+    @Query("UPDATE ProductEvent e SET e.published = true WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query("""
+            UPDATE ProductEvent e
+            SET e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, e.lastError = :error,
+                e.leaseOwner = null, e.leaseExpiresAt = null
+            WHERE e.id IN :ids AND e.published = false""")
+    int scheduleRetry(@Param("ids") Collection<UUID> ids, @Param("nextAttemptAt") Instant nextAttemptAt,
+                      @Param("error") String error);
+
+    @Modifying
+    @Query("""
+            UPDATE ProductEvent e
+            SET e.attempts = e.attempts + 1, e.deadLetteredAt = :now, e.nextAttemptAt = null, e.lastError = :error,
+                e.leaseOwner = null, e.leaseExpiresAt = null
+            WHERE e.id IN :ids AND e.published = false""")
+    int deadLetter(@Param("ids") Collection<UUID> ids, @Param("now") Instant now, @Param("error") String error);
+
+    @Modifying
+    @Query("""
+            UPDATE ProductEvent e SET e.nextAttemptAt = :now
+            WHERE e.published = false AND e.deadLetteredAt IS NULL AND e.nextAttemptAt > :now""")
+    int releaseRetries(@Param("now") Instant now);
+
+    long countByPublishedFalseAndDeadLetteredAtIsNull();
+
+    long countByDeadLetteredAtIsNotNull();
+
+    @Query("SELECT min(e.createdAt) FROM ProductEvent e WHERE e.published = false AND e.deadLetteredAt IS NULL")
+    Optional<Instant> findOldestUnpublishedCreatedAt();
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.smg.challenge.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The product columns local read models are built from.
+ */
+public record ProductIndexRow(UUID id, String name, BigDecimal price, Instant createdAt, Long version) {
+}
@@ -1,9 +1,33 @@
 package com.smg.challenge.repository;
 
 import com.smg.challenge.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface ProductRepository extends JpaRepository<Product, UUID> {}
+public interface ProductRepository extends JpaRepository<Product, UUID> {
 
+    @Query(value = "SELECT * FROM products ORDER BY created_at, id LIMIT :limit", nativeQuery = true)
+    List<Product> findFirstPage(@Param("limit") int limit);
+
+    // Row-value comparison so Postgres can seek directly in idx_products_created_at_id
+    @Query(value = """
+            SELECT * FROM products
+            WHERE (created_at, id) > (:createdAt, :id)
+            ORDER BY created_at, id
+            LIMIT :limit""", nativeQuery = true)
+    List<Product> findPageAfter(@Param("createdAt") Instant createdAt, @Param("id") UUID id, @Param("limit") int limit);
+
+    // Pulled through a server-side cursor without building entities; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT new com.smg.challenge.repository.ProductIndexRow(p.id, p.name, p.price, p.createdAt, p.version) FROM Product p")
+    Stream<ProductIndexRow> streamIndexRows();
+}
@@ -0,0 +1,25 @@
+package com.smg.challenge.serialization;
+
+public enum PayloadFormat {
+    JSON("application/json"),
+    BINARY("application/vnd.smg.product+binary");
+
+    private final String contentType;
+
+    PayloadFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static PayloadFormat fromContentType(String contentType) {
+        for (PayloadFormat format : values()) {
+            if (format.contentType.equals(contentType)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown payload content type " + contentType);
+    }
+}
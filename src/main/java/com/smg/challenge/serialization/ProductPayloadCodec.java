@@ -0,0 +1,120 @@
+package com.smg.challenge.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smg.challenge.exception.GenericException;
+import com.smg.challenge.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Encodes product payloads of outbox events either as JSON or in the compact binary format.
+ * <p>
+ * Binary schema version 2, big-endian:
+ * <pre>
+ * id            16 bytes  (most, least significant bits)
+ * name length    2 bytes  followed by the UTF-8 name
+ * price scale    1 byte
+ * price length   1 byte   followed by the unscaled value, two's complement
+ * createdAt     12 bytes  (epoch seconds, nanos)
+ * version        8 bytes  -1 when the product has none
+ * </pre>
+ * Version 1 is the same without the product version. The schema version is not part of the
+ * payload; it travels next to it (the {@code payload_schema_version} column and the
+ * {@code schema-version} Kafka record header), and payloads are encoded in the latest one.
+ */
+@Component
+public class ProductPayloadCodec {
+    public static final int BINARY_SCHEMA_VERSION = 2;
+
+    private final ObjectMapper objectMapper;
+
+    public ProductPayloadCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public byte[] encode(Product product, PayloadFormat format) {
+        try {
+            return switch (format) {
+                case JSON -> objectMapper.writeValueAsBytes(product);
+                case BINARY -> encodeBinary(product);
+            };
+        } catch (Exception e) {
+            throw new GenericException("Serialization failed", e);
+        }
+    }
+
+    public Product decode(byte[] payload, PayloadFormat format) {
+        return decode(payload, format, BINARY_SCHEMA_VERSION);
+    }
+
+    /**
+     * Decodes a payload; {@code schemaVersion} picks the binary layout and is ignored for JSON.
+     */
+    public Product decode(byte[] payload, PayloadFormat format, int schemaVersion) {
+        try {
+            return switch (format) {
+                case JSON -> objectMapper.readValue(payload, Product.class);
+                case BINARY -> decodeBinary(payload, schemaVersion);
+            };
+        } catch (Exception e) {
+            throw new GenericException("Deserialization failed", e);
+        }
+    }
+
+    public byte[] transcode(byte[] payload, PayloadFormat from, PayloadFormat to) {
+        return transcode(payload, from, BINARY_SCHEMA_VERSION, to);
+    }
+
+    public byte[] transcode(byte[] payload, PayloadFormat from, int fromSchemaVersion, PayloadFormat to) {
+        return from == to ? payload : encode(decode(payload, from, fromSchemaVersion), to);
+    }
+
+    private static byte[] encodeBinary(Product product) {
+        byte[] name = product.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] unscaledPrice = product.getPrice().unscaledValue().toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocate(16 + 2 + name.length + 1 + 1 + unscaledPrice.length + 12 + 8);
+        buffer.putLong(product.getId().getMostSignificantBits());
+        buffer.putLong(product.getId().getLeastSignificantBits());
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.put((byte) product.getPrice().scale());
+        buffer.put((byte) unscaledPrice.length);
+        buffer.put(unscaledPrice);
+        buffer.putLong(product.getCreatedAt().getEpochSecond());
+        buffer.putInt(product.getCreatedAt().getNano());
+        buffer.putLong(product.getVersion() == null ? -1 : product.getVersion());
+        return buffer.array();
+    }
+
+    private static Product decodeBinary(byte[] payload, int schemaVersion) {
+        if (schemaVersion != 1 && schemaVersion != 2) {
+            throw new IllegalArgumentException("Unsupported binary schema version " + schemaVersion);
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            UUID id = new UUID(buffer.getLong(), buffer.getLong());
+            byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(name);
+            int scale = buffer.get();
+            byte[] unscaledPrice = new byte[Byte.toUnsignedInt(buffer.get())];
+            buffer.get(unscaledPrice);
+            Instant createdAt = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            Long version = null;
+            if (schemaVersion >= 2) {
+                long encoded = buffer.getLong();
+                version = encoded < 0 ? null : encoded;
+            }
+            return new Product(id, new String(name, StandardCharsets.UTF_8),
+                    new BigDecimal(new BigInteger(unscaledPrice), scale), createdAt, version);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated binary product payload", e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.smg.challenge.service;
+
+import com.smg.challenge.model.Product;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ProductCatalogService {
+    /**
+     * The product as last seen on the products topic, or empty when the catalog is not ready
+     * or does not know it.
+     */
+    Optional<Product> findProduct(UUID id);
+
+    boolean isReady();
+}
@@ -2,12 +2,25 @@ package com.smg.challenge.service;
 
 import com.smg.challenge.model.ProductEvent;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface ProductEventService {
 
     List<ProductEvent> findTopUnpublishedOrderByCreatedAt(int limit);
+    List<ProductEvent> claimUnpublished(String owner, int limit, Duration leaseDuration);
     ProductEvent save(ProductEvent event);
+    List<ProductEvent> saveAll(List<ProductEvent> events);
     void markPublished(UUID eventId);
+    int markPublished(Collection<UUID> eventIds);
+    int scheduleRetry(Collection<UUID> eventIds, Instant nextAttemptAt, String error);
+    int deadLetter(Collection<UUID> eventIds, String error);
+    int releaseRetries();
+    long countUnpublished();
+    long countDeadLettered();
+    Optional<Instant> findOldestUnpublishedCreatedAt();
 }
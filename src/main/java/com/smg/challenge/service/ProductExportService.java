@@ -0,0 +1,7 @@
+package com.smg.challenge.service;
+
+import java.io.OutputStream;
+
+public interface ProductExportService {
+    long exportProducts(OutputStream output);
+}
@@ -0,0 +1,10 @@
+package com.smg.challenge.service;
+
+import com.smg.challenge.dto.ProductImportFormat;
+import com.smg.challenge.dto.ProductImportReport;
+
+import java.io.InputStream;
+
+public interface ProductImportService {
+    ProductImportReport importProducts(InputStream input, ProductImportFormat format);
+}
@@ -0,0 +1,13 @@
+package com.smg.challenge.service;
+
+import com.smg.challenge.dto.ProductPriceRangeResponse;
+import com.smg.challenge.dto.ProductPriceStatsResponse;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface ProductPriceService {
+    ProductPriceRangeResponse findByPriceRange(BigDecimal min, BigDecimal max, int limit);
+
+    ProductPriceStatsResponse priceStats(List<Double> percentiles);
+}
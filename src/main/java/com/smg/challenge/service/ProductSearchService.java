@@ -0,0 +1,9 @@
+package com.smg.challenge.service;
+
+import com.smg.challenge.dto.ProductSearchHit;
+
+import java.util.List;
+
+public interface ProductSearchService {
+    List<ProductSearchHit> searchProducts(String query, int limit);
+}
@@ -2,7 +2,21 @@ package com.smg.challenge.service;
 
 import com.smg.challenge.model.Product;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
 public interface ProductService {
     Product createProduct(Product product);
+
+    List<Product> createProducts(List<Product> products);
+
+    Product getProduct(UUID id);
+
+    Product updateProduct(UUID id, Product product, long expectedVersion);
+
+    void deleteProduct(UUID id, Long expectedVersion);
+
+    List<Product> listProducts(Instant afterCreatedAt, UUID afterId, int limit);
 }
 
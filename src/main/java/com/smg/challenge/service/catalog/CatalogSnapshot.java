@@ -0,0 +1,273 @@
+package com.smg.challenge.service.catalog;
+
+import com.smg.challenge.model.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A product catalog checkpoint in a memory-mapped file, read in place without loading it.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * magic, format     4 + 4 bytes
+ * taken at          8 bytes   epoch millis
+ * products          4 bytes
+ * slots             4 bytes   power of two, at least twice the products
+ * partitions        4 bytes   followed by (partition 4 bytes, next offset 8 bytes) each
+ * slot table        4 bytes per slot, record offset + 1, 0 when empty
+ * records           id 16, createdAt 12, version 8 (Long.MIN_VALUE when none),
+ *                   price scale 1, price length 1, unscaled price, name length 2, UTF-8 name
+ * </pre>
+ * Record offsets are relative to the start of the records, and a product is found by linear
+ * probing of the slot table from the hash of its id. A file must fit one mapping, so 2 GB.
+ * <p>
+ * Snapshots are immutable. {@link #write} builds a new one in a temporary file and moves it over
+ * the old one, whose mapping stays valid for readers still holding it.
+ */
+public final class CatalogSnapshot {
+    private static final int MAGIC = 0x50434154; // "PCAT"
+    private static final int FORMAT = 1;
+    private static final int FIXED_HEADER = 28;
+    private static final long NO_VERSION = Long.MIN_VALUE;
+
+    /**
+     * Receives the products of a new snapshot. Every product id may be added only once.
+     */
+    public interface RecordSink {
+        void add(Product product) throws IOException;
+
+        /**
+         * Copies a record of an existing snapshot as is, without decoding it.
+         */
+        void copy(CatalogSnapshot source, int record) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface RecordWriter {
+        void writeTo(RecordSink sink) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(long idMost, long idLeast, int record) throws IOException;
+    }
+
+    private final ByteBuffer buffer;
+    private final Instant takenAt;
+    private final int productCount;
+    private final int slotCount;
+    private final Map<Integer, Long> offsets;
+    private final int slotsStart;
+    private final int recordsStart;
+
+    private CatalogSnapshot(ByteBuffer buffer) {
+        if (buffer.capacity() < FIXED_HEADER || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+            throw new IllegalArgumentException("Not a product catalog snapshot of format " + FORMAT);
+        }
+        this.buffer = buffer;
+        this.takenAt = Instant.ofEpochMilli(buffer.getLong(8));
+        this.productCount = buffer.getInt(16);
+        this.slotCount = buffer.getInt(20);
+        int partitionCount = buffer.getInt(24);
+        Map<Integer, Long> partitions = new HashMap<>();
+        for (int i = 0; i < partitionCount; i++) {
+            int at = FIXED_HEADER + 12 * i;
+            partitions.put(buffer.getInt(at), buffer.getLong(at + 4));
+        }
+        this.offsets = Collections.unmodifiableMap(partitions);
+        this.slotsStart = FIXED_HEADER + 12 * partitionCount;
+        this.recordsStart = slotsStart + 4 * slotCount;
+    }
+
+    /**
+     * Maps an existing snapshot, or returns null when there is none.
+     */
+    public static CatalogSnapshot open(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new CatalogSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a snapshot of the products given to the sink and the next offset to consume per
+     * partition, replaces the file at {@code path} with it and maps it.
+     */
+    public static CatalogSnapshot write(Path path, Map<Integer, Long> offsets, RecordWriter records) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path recordsFile = Files.createTempFile(directory, "catalog-records", ".tmp");
+        Path snapshotFile = Files.createTempFile(directory, "catalog-snapshot", ".tmp");
+        try {
+            int count;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(recordsFile), 1 << 16))) {
+                StreamSink sink = new StreamSink(out);
+                records.writeTo(sink);
+                count = sink.count;
+            }
+            long recordBytes = Files.size(recordsFile);
+            int slots = Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+            int slotsStart = FIXED_HEADER + 12 * offsets.size();
+            long size = slotsStart + 4L * slots + recordBytes;
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Catalog of " + count + " products does not fit one snapshot mapping: " + size + " bytes");
+            }
+
+            try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileChannel recordsChannel = FileChannel.open(recordsFile, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                mapped.putInt(MAGIC).putInt(FORMAT).putLong(System.currentTimeMillis())
+                        .putInt(count).putInt(slots).putInt(offsets.size());
+                offsets.forEach((partition, offset) -> mapped.putInt(partition).putLong(offset));
+                int recordsStart = slotsStart + 4 * slots;
+                mapped.position(recordsStart);
+                while (mapped.hasRemaining()) {
+                    if (recordsChannel.read(mapped) < 0) {
+                        throw new EOFException("Records file ended early: " + recordsFile);
+                    }
+                }
+                // The mapping starts zeroed, so every slot is empty until a record is placed
+                int mask = slots - 1;
+                for (int record = 0; record < recordBytes; record += recordLength(mapped, recordsStart + record)) {
+                    int at = recordsStart + record;
+                    int slot = hash(mapped.getLong(at), mapped.getLong(at + 8)) & mask;
+                    while (mapped.getInt(slotsStart + 4 * slot) != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    mapped.putInt(slotsStart + 4 * slot, record + 1);
+                }
+                mapped.force();
+            }
+            Files.move(snapshotFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return open(path);
+        } finally {
+            Files.deleteIfExists(recordsFile);
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    public Product find(UUID id) {
+        long most = id.getMostSignificantBits();
+        long least = id.getLeastSignificantBits();
+        int mask = slotCount - 1;
+        for (int slot = hash(most, least) & mask; ; slot = (slot + 1) & mask) {
+            int entry = buffer.getInt(slotsStart + 4 * slot);
+            if (entry == 0) {
+                return null;
+            }
+            int at = recordsStart + entry - 1;
+            if (buffer.getLong(at) == most && buffer.getLong(at + 8) == least) {
+                return decode(at);
+            }
+        }
+    }
+
+    /**
+     * Visits every record in file order, with the product id and the record to {@link RecordSink#copy}.
+     */
+    public void forEachRecord(RecordVisitor visitor) throws IOException {
+        for (int record = 0, end = buffer.capacity() - recordsStart; record < end;
+             record += recordLength(buffer, recordsStart + record)) {
+            visitor.visit(buffer.getLong(recordsStart + record), buffer.getLong(recordsStart + record + 8), record);
+        }
+    }
+
+    public Instant takenAt() {
+        return takenAt;
+    }
+
+    public int size() {
+        return productCount;
+    }
+
+    /**
+     * Next offset to consume per products topic partition, for every partition consumed when
+     * the snapshot was taken.
+     */
+    public Map<Integer, Long> offsets() {
+        return offsets;
+    }
+
+    public long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    private Product decode(int at) {
+        UUID id = new UUID(buffer.getLong(at), buffer.getLong(at + 8));
+        Instant createdAt = Instant.ofEpochSecond(buffer.getLong(at + 16), buffer.getInt(at + 24));
+        long version = buffer.getLong(at + 28);
+        int scale = buffer.get(at + 36);
+        byte[] unscaledPrice = new byte[Byte.toUnsignedInt(buffer.get(at + 37))];
+        buffer.get(at + 38, unscaledPrice);
+        int nameAt = at + 38 + unscaledPrice.length;
+        byte[] name = new byte[Short.toUnsignedInt(buffer.getShort(nameAt))];
+        buffer.get(nameAt + 2, name);
+        return new Product(id, new String(name, StandardCharsets.UTF_8), new BigDecimal(new BigInteger(unscaledPrice), scale),
+                createdAt, version == NO_VERSION ? null : version);
+    }
+
+    private static int recordLength(ByteBuffer buffer, int at) {
+        int priceLength = Byte.toUnsignedInt(buffer.get(at + 37));
+        return 38 + priceLength + 2 + Short.toUnsignedInt(buffer.getShort(at + 38 + priceLength));
+    }
+
+    private static int hash(long most, long least) {
+        long h = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static final class StreamSink implements RecordSink {
+        private final DataOutputStream out;
+        private int count;
+
+        StreamSink(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void add(Product product) throws IOException {
+            byte[] name = product.getName().getBytes(StandardCharsets.UTF_8);
+            byte[] unscaledPrice = product.getPrice().unscaledValue().toByteArray();
+            out.writeLong(product.getId().getMostSignificantBits());
+            out.writeLong(product.getId().getLeastSignificantBits());
+            out.writeLong(product.getCreatedAt().getEpochSecond());
+            out.writeInt(product.getCreatedAt().getNano());
+            out.writeLong(product.getVersion() == null ? NO_VERSION : product.getVersion());
+            out.writeByte(product.getPrice().scale());
+            out.writeByte(unscaledPrice.length);
+            out.write(unscaledPrice);
+            out.writeShort(name.length);
+            out.write(name);
+            count++;
+        }
+
+        @Override
+        public void copy(CatalogSnapshot source, int record) throws IOException {
+            int at = source.recordsStart + record;
+            byte[] bytes = new byte[recordLength(source.buffer, at)];
+            source.buffer.get(at, bytes);
+            out.write(bytes);
+            count++;
+        }
+    }
+}
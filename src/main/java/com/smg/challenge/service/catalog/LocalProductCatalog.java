@@ -0,0 +1,463 @@
+package com.smg.challenge.service.catalog;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.repository.ProductIndexRow;
+import com.smg.challenge.repository.ProductRepository;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import com.smg.challenge.service.ProductCatalogService;
+import com.smg.challenge.service.consumer.ProductChange;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Local read model of the whole catalog, so a restarted instance can serve product reads
+ * without a burst of queries against Postgres.
+ * <p>
+ * The catalog is a memory-mapped {@link CatalogSnapshot} plus the changes consumed since it was
+ * taken, kept in a map by product id. Products topic records are consumed in batches, in a
+ * consumer group of this instance's own. Every {@code product.catalog.checkpoint-interval}, and
+ * on shutdown, the snapshot and the changes are written to a new snapshot together with the
+ * next offset of every partition, and the changes are dropped.
+ * <p>
+ * On startup the last snapshot is mapped and the consumer seeks to its offsets, so only the tail
+ * written since then is replayed. Without a usable snapshot (missing, older than
+ * {@code product.catalog.snapshot-max-age}, ahead of the topic, or behind a log start that
+ * retention moved past it) the catalog is loaded from the products table in the background once partitions are assigned, written as the first
+ * snapshot, and consumed from the end meanwhile. A failed load is retried with a growing delay.
+ * The catalog is ready once it is loaded and has consumed up to the end offsets seen at
+ * assignment; until then it answers nothing and reads go to the database.
+ * <p>
+ * Consuming, loading and checkpoints share a lock, which is never held while a snapshot is
+ * written or the database is read. Readers see an immutable view of the snapshot and the change
+ * maps, which a checkpoint replaces as a whole.
+ */
+@Slf4j
+@Lazy(false)
+@Component
+@ConditionalOnProperty(value = "product.catalog.enabled", havingValue = "true")
+public class LocalProductCatalog implements ProductCatalogService, ConsumerSeekAware {
+
+    // checkpointing holds the changes a running checkpoint writes, changes those consumed since
+    // Log start and end offset of every assigned partition
+    private record PartitionBounds(Map<Integer, Long> logStart, Map<Integer, Long> end) {
+    }
+
+    private record View(CatalogSnapshot snapshot, Map<UUID, ProductChange> checkpointing,
+                        Map<UUID, ProductChange> changes) {
+
+        ProductChange change(UUID id) {
+            ProductChange change = changes.get(id);
+            return change != null ? change : checkpointing.get(id);
+        }
+
+        int changeCount() {
+            return checkpointing.size() + changes.size();
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductPayloadCodec payloadCodec;
+    private final ConsumerFactory<String, byte[]> consumerFactory;
+    private final Timer checkpointTimer;
+    private final long startedNanos = System.nanoTime();
+
+    @Value("${kafka.topic.products.format:JSON}")
+    private PayloadFormat topicFormat = PayloadFormat.JSON;
+
+    @Value("${product.catalog.snapshot-path:data/product-catalog.snapshot}")
+    private Path snapshotPath = Path.of("data/product-catalog.snapshot");
+
+    @Value("${product.catalog.checkpoint-interval:60s}")
+    private Duration checkpointInterval = Duration.ofSeconds(60);
+
+    @Value("${product.catalog.checkpoint-on-shutdown:true}")
+    private boolean checkpointOnShutdown = true;
+
+    @Value("${product.catalog.snapshot-max-age:1d}")
+    private Duration snapshotMaxAge = Duration.ofDays(1);
+
+    @Value("${product.catalog.load-retry.initial:1s}")
+    private Duration loadRetryInitial = Duration.ofSeconds(1);
+
+    @Value("${product.catalog.load-retry.max:1m}")
+    private Duration loadRetryMax = Duration.ofMinutes(1);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private volatile View view = new View(null, Map.of(), new ConcurrentHashMap<>());
+    private volatile boolean ready;
+    private volatile long millisToReady = -1;
+    private volatile boolean stopped;
+    private volatile Thread loadThread;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private final Map<Integer, Long> positions = new HashMap<>();
+    // End offsets to reach before the catalog is ready, null until a snapshot or load succeeded
+    private Map<Integer, Long> readyOffsets;
+    private long replayed;
+    private long lastCheckpointNanos = System.nanoTime();
+    private boolean changedSinceCheckpoint;
+    private boolean loading;
+    private boolean checkpointRunning;
+
+    public LocalProductCatalog(ProductRepository productRepository,
+                               PlatformTransactionManager transactionManager,
+                               ProductPayloadCodec payloadCodec,
+                               ConsumerFactory<String, byte[]> consumerFactory,
+                               MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.payloadCodec = payloadCodec;
+        this.consumerFactory = consumerFactory;
+        this.checkpointTimer = Timer.builder("product.catalog.checkpoint")
+                .description("Time to write a product catalog snapshot")
+                .register(meterRegistry);
+        Gauge.builder("product.catalog.changes", this, catalog -> catalog.view.changeCount())
+                .description("Product changes consumed since the last catalog snapshot")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<Product> findProduct(UUID id) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        View current = view;
+        ProductChange change = current.change(id);
+        if (change != null) {
+            return change.isDelete() ? Optional.empty() : Optional.of(change.product());
+        }
+        return current.snapshot() == null ? Optional.empty() : Optional.ofNullable(current.snapshot().find(id));
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Milliseconds from creating this bean until the catalog was ready, or -1 while it is not.
+     */
+    public long millisToReady() {
+        return millisToReady;
+    }
+
+    @KafkaListener(topics = "products", groupId = "product-catalog-#{T(java.util.UUID).randomUUID().toString()}",
+            batch = "true")
+    public void onProductEvents(List<ConsumerRecord<String, byte[]>> consumerRecords) {
+        boolean checkpointDue;
+        lock.lock();
+        try {
+            View current = view;
+            for (ConsumerRecord<String, byte[]> consumerRecord : consumerRecords) {
+                positions.put(consumerRecord.partition(), consumerRecord.offset() + 1);
+                try {
+                    ProductChange change = ProductChange.from(consumerRecord, payloadCodec, topicFormat);
+                    if (change != null && !isStale(change, current)) {
+                        current.changes().put(change.product().getId(), change);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Skipping undecodable product record at offset {} of partition {}: {}",
+                            consumerRecord.offset(), consumerRecord.partition(), e.getMessage());
+                }
+            }
+            changedSinceCheckpoint = true;
+            if (!ready) {
+                replayed += consumerRecords.size();
+                checkReady();
+            }
+            // Before it is ready the catalog may be incomplete, and a snapshot of it would look complete
+            checkpointDue = ready && System.nanoTime() - lastCheckpointNanos >= checkpointInterval.toNanos();
+        } finally {
+            lock.unlock();
+        }
+        if (checkpointDue) {
+            checkpoint();
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        PartitionBounds bounds = partitionBounds(assignments.keySet());
+        Map<Integer, Long> endOffsets = bounds.end();
+        CatalogSnapshot snapshot = usableSnapshot(bounds);
+        lock.lock();
+        try {
+            if (snapshot != null) {
+                assignments.keySet().forEach(partition -> {
+                    long offset = snapshot.offsets().getOrDefault(partition.partition(), 0L);
+                    callback.seek(partition.topic(), partition.partition(), offset);
+                    positions.put(partition.partition(), offset);
+                });
+                view = new View(snapshot, Map.of(), new ConcurrentHashMap<>());
+                log.info("Mapped product catalog snapshot of {} products taken at {}, replaying the topic from its offsets",
+                        snapshot.size(), snapshot.takenAt());
+                readyOffsets = endOffsets;
+                checkReady();
+            } else {
+                assignments.forEach((partition, position) -> positions.put(partition.partition(), position));
+                startLoad(Map.copyOf(positions), endOffsets);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        stopped = true;
+        Thread thread = loadThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        boolean checkpointDue;
+        lock.lock();
+        try {
+            checkpointDue = checkpointOnShutdown && ready && changedSinceCheckpoint;
+        } finally {
+            lock.unlock();
+        }
+        if (checkpointDue) {
+            checkpoint();
+        }
+    }
+
+    // Older than the state the catalog holds, e.g. a change that reached the topic after a later one
+    private static boolean isStale(ProductChange change, View current) {
+        ProductChange held = current.change(change.product().getId());
+        if (held != null) {
+            return change.version() < held.version()
+                    || held.isDelete() && !change.isDelete() && change.version() == held.version();
+        }
+        Product product = current.snapshot() == null ? null : current.snapshot().find(change.product().getId());
+        return product != null && product.getVersion() != null && change.version() < product.getVersion();
+    }
+
+    private CatalogSnapshot usableSnapshot(PartitionBounds bounds) {
+        CatalogSnapshot snapshot;
+        try {
+            snapshot = view.snapshot() != null ? view.snapshot() : CatalogSnapshot.open(snapshotPath);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable product catalog snapshot {}: {}", snapshotPath, e.getMessage());
+            return null;
+        }
+        if (snapshot == null) {
+            return null;
+        }
+        if (snapshot.takenAt().isBefore(Instant.now().minus(snapshotMaxAge))) {
+            log.info("Ignoring product catalog snapshot taken at {}, older than {}", snapshot.takenAt(), snapshotMaxAge);
+            return null;
+        }
+        // Offsets past the end mean the snapshot was taken from another topic, e.g. a recreated one
+        for (var end : bounds.end().entrySet()) {
+            if (snapshot.offsets().getOrDefault(end.getKey(), 0L) > end.getValue()) {
+                log.info("Ignoring product catalog snapshot ahead of partition {} of the products topic", end.getKey());
+                return null;
+            }
+        }
+        // Offsets before the log start mean retention deleted changes the snapshot does not hold
+        for (var logStart : bounds.logStart().entrySet()) {
+            if (snapshot.offsets().getOrDefault(logStart.getKey(), 0L) < logStart.getValue()) {
+                log.info("Ignoring product catalog snapshot behind the log start of partition {} of the products topic",
+                        logStart.getKey());
+                return null;
+            }
+        }
+        return snapshot;
+    }
+
+    // Runs on a thread of its own, so a long load never holds up the consumer past max.poll.interval.ms.
+    // Called with the lock held
+    private void startLoad(Map<Integer, Long> offsets, Map<Integer, Long> endOffsets) {
+        if (loading || stopped) {
+            return;
+        }
+        loading = true;
+        Runnable load = () -> load(offsets, endOffsets);
+        if (virtualThreads) {
+            loadThread = Thread.ofVirtual().name("product-catalog-load").start(load);
+        } else {
+            loadThread = Thread.ofPlatform().name("product-catalog-load").daemon(true).start(load);
+        }
+    }
+
+    private void load(Map<Integer, Long> offsets, Map<Integer, Long> endOffsets) {
+        Duration delay = loadRetryInitial;
+        while (!stopped) {
+            long start = System.nanoTime();
+            CatalogSnapshot snapshot;
+            try {
+                snapshot = CatalogSnapshot.write(snapshotPath, offsets, sink -> transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<ProductIndexRow> rows = productRepository.streamIndexRows()) {
+                        rows.forEach(row -> {
+                            try {
+                                sink.add(new Product(row.id(), row.name(), row.price(), row.createdAt(), row.version()));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    }
+                }));
+            } catch (IOException | RuntimeException e) {
+                log.error("Loading the product catalog failed, retrying in {} ms: {}", delay.toMillis(), e.getMessage(), e);
+                if (!sleep(delay)) {
+                    return;
+                }
+                delay = delay.multipliedBy(2).compareTo(loadRetryMax) > 0 ? loadRetryMax : delay.multipliedBy(2);
+                continue;
+            }
+            lock.lock();
+            try {
+                // Changes consumed during the load are kept unless the load read a later state of the product
+                View loaded = new View(snapshot, Map.of(), new ConcurrentHashMap<>());
+                view.changes().forEach((id, change) -> {
+                    if (!isStale(change, loaded)) {
+                        loaded.changes().put(id, change);
+                    }
+                });
+                view = loaded;
+                lastCheckpointNanos = System.nanoTime();
+                readyOffsets = endOffsets;
+                loading = false;
+                checkReady();
+            } finally {
+                lock.unlock();
+            }
+            log.info("Loaded product catalog of {} products from the database in {} ms", snapshot.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return;
+        }
+    }
+
+    private void checkpoint() {
+        View current;
+        Map<Integer, Long> offsets;
+        lock.lock();
+        try {
+            if (checkpointRunning) {
+                return;
+            }
+            checkpointRunning = true;
+            // Changes consumed from here on go to a new map, so the one being written stays as it is
+            current = new View(view.snapshot(), view.changes(), new ConcurrentHashMap<>());
+            view = current;
+            offsets = Map.copyOf(positions);
+            changedSinceCheckpoint = false;
+        } finally {
+            lock.unlock();
+        }
+
+        long start = System.nanoTime();
+        CatalogSnapshot snapshot = null;
+        try {
+            snapshot = CatalogSnapshot.write(snapshotPath, offsets, sink -> {
+                if (current.snapshot() != null) {
+                    current.snapshot().forEachRecord((most, least, record) -> {
+                        if (!current.checkpointing().containsKey(new UUID(most, least))) {
+                            sink.copy(current.snapshot(), record);
+                        }
+                    });
+                }
+                for (ProductChange change : current.checkpointing().values()) {
+                    if (!change.isDelete()) {
+                        sink.add(change.product());
+                    }
+                }
+            });
+            log.debug("Wrote product catalog snapshot of {} products, {} MB, with {} changes", snapshot.size(),
+                    snapshot.sizeInBytes() / (1024 * 1024), current.checkpointing().size());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Writing the product catalog snapshot failed, changes stay in memory until the next checkpoint: {}",
+                    e.getMessage(), e);
+        } finally {
+            lock.lock();
+            try {
+                View latest = view;
+                if (snapshot != null) {
+                    view = new View(snapshot, Map.of(), latest.changes());
+                } else {
+                    Map<UUID, ProductChange> changes = new ConcurrentHashMap<>(latest.checkpointing());
+                    changes.putAll(latest.changes());
+                    view = new View(latest.snapshot(), Map.of(), changes);
+                    changedSinceCheckpoint = true;
+                }
+                checkpointRunning = false;
+                lastCheckpointNanos = System.nanoTime();
+            } finally {
+                lock.unlock();
+            }
+            checkpointTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Called with the lock held
+    private void checkReady() {
+        if (ready || readyOffsets == null) {
+            return;
+        }
+        for (var target : readyOffsets.entrySet()) {
+            if (positions.getOrDefault(target.getKey(), 0L) < target.getValue()) {
+                return;
+            }
+        }
+        ready = true;
+        millisToReady = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+        log.info("Product catalog ready {} ms after startup, {} records replayed", millisToReady, replayed);
+    }
+
+    private PartitionBounds partitionBounds(Collection<TopicPartition> partitions) {
+        try (Consumer<String, byte[]> consumer = consumerFactory.createConsumer()) {
+            Map<Integer, Long> logStart = new HashMap<>();
+            consumer.beginningOffsets(partitions).forEach((partition, offset) -> logStart.put(partition.partition(), offset));
+            Map<Integer, Long> end = new HashMap<>();
+            consumer.endOffsets(partitions).forEach((partition, offset) -> end.put(partition.partition(), offset));
+            return new PartitionBounds(logStart, end);
+        }
+    }
+
+    private boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.smg.challenge.service.consumer;
+
+import com.smg.challenge.service.impl.ProductServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Evicts products from the local cache when any node publishes an event for them.
+ * Every instance consumes the products topic in its own consumer group, so each
+ * node sees every event regardless of which node wrote it.
+ */
+@Slf4j
+@Lazy(false)
+@Component
+@ConditionalOnProperty(value = "product.cache.invalidation.enabled", havingValue = "true", matchIfMissing = true)
+public class ProductCacheInvalidator {
+
+    private final Cache productCache;
+
+    public ProductCacheInvalidator(CacheManager cacheManager) {
+        this.productCache = cacheManager.getCache(ProductServiceImpl.PRODUCT_CACHE);
+    }
+
+    @KafkaListener(topics = "products", groupId = "product-cache-#{T(java.util.UUID).randomUUID().toString()}")
+    public void onProductEvent(ConsumerRecord<String, byte[]> consumerRecord) {
+        if (consumerRecord.key() == null) {
+            return;
+        }
+        productCache.evict(UUID.fromString(consumerRecord.key()));
+        log.debug("Evicted product {} from cache", consumerRecord.key());
+    }
+}
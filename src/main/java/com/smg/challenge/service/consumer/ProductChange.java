@@ -0,0 +1,55 @@
+package com.smg.challenge.service.consumer;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import com.smg.challenge.service.impl.ProductServiceImpl;
+import com.smg.challenge.service.publisher.PublishScheduler;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A products topic record decoded for local read models: the product state it carries and
+ * whether the product was deleted. Records without the event-type header predate updates and
+ * deletes and are creates.
+ */
+public record ProductChange(String eventType, Product product) {
+
+    public boolean isDelete() {
+        return ProductServiceImpl.EVENT_TYPE_PRODUCT_DELETED.equals(eventType);
+    }
+
+    /**
+     * The product version the change was made at. Payloads written before products had a version
+     * carry none; every such product was backfilled with version 0.
+     */
+    public long version() {
+        return product.getVersion() == null ? 0 : product.getVersion();
+    }
+
+    /**
+     * Decodes the record with the format named in its content-type header, or
+     * {@code defaultFormat} when it has none, and a binary payload with the layout of its
+     * schema-version header, version 1 when it has none. Returns null for records without a key
+     * or payload, which carry no product state.
+     */
+    public static ProductChange from(ConsumerRecord<String, byte[]> consumerRecord, ProductPayloadCodec payloadCodec,
+                                     PayloadFormat defaultFormat) {
+        if (consumerRecord.key() == null || consumerRecord.value() == null || consumerRecord.value().length == 0) {
+            return null;
+        }
+        String contentType = header(consumerRecord, PublishScheduler.CONTENT_TYPE_HEADER);
+        String eventType = header(consumerRecord, PublishScheduler.EVENT_TYPE_HEADER);
+        String schemaVersion = header(consumerRecord, PublishScheduler.SCHEMA_VERSION_HEADER);
+        PayloadFormat format = contentType == null ? defaultFormat : PayloadFormat.fromContentType(contentType);
+        return new ProductChange(eventType == null ? ProductServiceImpl.EVENT_TYPE_PRODUCT_CREATED : eventType,
+                payloadCodec.decode(consumerRecord.value(), format, schemaVersion == null ? 1 : Integer.parseInt(schemaVersion)));
+    }
+
+    private static String header(ConsumerRecord<String, byte[]> consumerRecord, String name) {
+        Header header = consumerRecord.headers().lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,25 @@
+package com.smg.challenge.service.consumer;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * A local read model of the catalog, loaded from the products table on startup and kept
+ * current from the products topic by {@link ProductProjectionFeed}. Both paths may deliver
+ * the same state more than once, so {@link #put} and {@link #remove} must be idempotent. Both
+ * paths may also deliver an older state after a newer one, so they carry the product version, and
+ * a change older than the version held, or not newer than the version a product was deleted at,
+ * must be dropped.
+ */
+public interface ProductProjection {
+
+    void put(UUID id, String name, BigDecimal price, long version);
+
+    void remove(UUID id, long version);
+
+    /**
+     * Called once after the startup load, with the number of rows loaded and how long it took.
+     */
+    default void loaded(long rows, long millis) {
+    }
+}
@@ -0,0 +1,228 @@
+package com.smg.challenge.service.consumer;
+
+import com.smg.challenge.repository.ProductIndexRow;
+import com.smg.challenge.repository.ProductRepository;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the {@link ProductProjection}s current. Like ProductCacheInvalidator every instance reads
+ * the products topic in its own consumer group, from the end. Once partitions are assigned the
+ * projections are loaded from the products table in the background, so every product committed
+ * after the load's snapshot is seen on the topic. Changes consumed while the load runs are held
+ * back and applied after it, so the snapshot and the topic together miss nothing. A failed load is
+ * retried with a growing delay. Until a load finished, projections only hold part of the catalog
+ * and the feed reports itself out of service in the health endpoint.
+ */
+@Slf4j
+@Lazy(false)
+@Component
+public class ProductProjectionFeed implements ConsumerSeekAware, HealthIndicator {
+
+    private final List<ProductProjection> projections;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductPayloadCodec payloadCodec;
+
+    @Value("${kafka.topic.products.format:JSON}")
+    private PayloadFormat topicFormat = PayloadFormat.JSON;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${product.projection.load-retry.initial:1s}")
+    private Duration loadRetryInitial = Duration.ofSeconds(1);
+
+    @Value("${product.projection.load-retry.max:1m}")
+    private Duration loadRetryMax = Duration.ofMinutes(1);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private boolean loading;
+    private final List<ProductChange> pendingChanges = new ArrayList<>();
+    private volatile boolean loaded;
+    private volatile int failedLoads;
+    private volatile boolean stopped;
+    private volatile Thread loadThread;
+
+    public ProductProjectionFeed(List<ProductProjection> projections,
+                                 ProductRepository productRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ProductPayloadCodec payloadCodec) {
+        this.projections = projections;
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.payloadCodec = payloadCodec;
+    }
+
+    @KafkaListener(topics = "products", groupId = "product-projections-#{T(java.util.UUID).randomUUID().toString()}")
+    public void onProductEvent(ConsumerRecord<String, byte[]> consumerRecord) {
+        ProductChange change;
+        try {
+            change = ProductChange.from(consumerRecord, payloadCodec, topicFormat);
+        } catch (RuntimeException e) {
+            log.warn("Skipping undecodable product record at offset {} of partition {}: {}",
+                    consumerRecord.offset(), consumerRecord.partition(), e.getMessage());
+            return;
+        }
+        if (change != null) {
+            apply(change);
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        startLoad();
+    }
+
+    /**
+     * Starts loading the projections in the background, unless they are loaded or being loaded.
+     */
+    public void startLoad() {
+        lock.lock();
+        try {
+            if (loading || loaded || projections.isEmpty()) {
+                return;
+            }
+            loading = true;
+            Runnable load = this::load;
+            if (virtualThreads) {
+                loadThread = Thread.ofVirtual().name("product-projection-load").start(load);
+            } else {
+                loadThread = Thread.ofPlatform().name("product-projection-load").daemon(true).start(load);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void apply(ProductChange change) {
+        lock.lock();
+        try {
+            if (loading) {
+                pendingChanges.add(change);
+                return;
+            }
+            applyToProjections(change);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Down (OUT_OF_SERVICE) until the projections are loaded, as they only hold part of the
+     * catalog before.
+     */
+    @Override
+    public Health health() {
+        if (loaded || projections.isEmpty()) {
+            return Health.up().build();
+        }
+        return Health.outOfService().withDetail("failedLoads", failedLoads).build();
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        Thread thread = loadThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    // The feed is the only member of its consumer group, so no new assignment would retry a failed
+    // load; it is retried here instead, with a doubling delay
+    private void load() {
+        Duration delay = loadRetryInitial;
+        while (!stopped) {
+            long start = System.nanoTime();
+            AtomicLong rows = new AtomicLong();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<ProductIndexRow> stream = productRepository.streamIndexRows()) {
+                        stream.forEach(row -> {
+                            for (ProductProjection projection : projections) {
+                                projection.put(row.id(), row.name(), row.price(), row.version());
+                            }
+                            rows.incrementAndGet();
+                        });
+                    }
+                });
+            } catch (RuntimeException e) {
+                failedLoads++;
+                log.error("Loading the product projections failed, retrying in {} ms: {}", delay.toMillis(),
+                        e.getMessage(), e);
+                // Projections drop changes older than what they hold, so these are safe to apply to a partial load
+                applyPendingChanges(false);
+                if (!sleep(delay)) {
+                    return;
+                }
+                delay = delay.multipliedBy(2).compareTo(loadRetryMax) > 0 ? loadRetryMax : delay.multipliedBy(2);
+                continue;
+            }
+            applyPendingChanges(true);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            projections.forEach(projection -> projection.loaded(rows.get(), millis));
+            return;
+        }
+    }
+
+    private void applyPendingChanges(boolean loadFinished) {
+        lock.lock();
+        try {
+            log.debug("Applying {} changes consumed during the projection load", pendingChanges.size());
+            pendingChanges.forEach(this::applyToProjections);
+            pendingChanges.clear();
+            if (loadFinished) {
+                loading = false;
+                loaded = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void applyToProjections(ProductChange change) {
+        for (ProductProjection projection : projections) {
+            if (change.isDelete()) {
+                projection.remove(change.product().getId(), change.version());
+            } else {
+                projection.put(change.product().getId(), change.product().getName(), change.product().getPrice(),
+                        change.version());
+            }
+        }
+    }
+
+    private boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
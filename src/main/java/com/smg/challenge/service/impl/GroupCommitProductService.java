@@ -0,0 +1,232 @@
+package com.smg.challenge.service.impl;
+
+import com.smg.challenge.exception.ProductException;
+import com.smg.challenge.model.Product;
+import com.smg.challenge.service.ProductService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for single product creates. Concurrent {@link #createProduct} calls are queued
+ * and a writer thread collects up to {@code product.group-commit.max-size} of them, waiting at
+ * most {@code product.group-commit.max-wait} after the first one, and writes the whole group
+ * with {@link ProductService#createProducts} in one transaction. Callers block until their
+ * group is committed and get their own product back.
+ * <p>
+ * If a group fails, its products are written again one by one, so only the caller whose
+ * product is actually broken gets the error. When the queue is full or the writers are not
+ * running, the caller writes its product directly.
+ */
+@Slf4j
+@Service
+@Primary
+@ConditionalOnProperty(value = "product.group-commit.enabled", havingValue = "true")
+public class GroupCommitProductService implements ProductService, SmartLifecycle {
+
+    private final ProductService delegate;
+    private final DistributionSummary groupSize;
+    private final Counter groupFallbacks;
+
+    @Value("${product.group-commit.max-wait:500us}")
+    private Duration maxWait = Duration.ofNanos(500_000);
+
+    @Value("${product.group-commit.max-size:100}")
+    private int maxGroupSize = 100;
+
+    @Value("${product.group-commit.writers:4}")
+    private int writers = 4;
+
+    @Value("${product.group-commit.queue-capacity:10000}")
+    private int queueCapacity = 10000;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private volatile boolean running;
+    private BlockingQueue<PendingCreate> queue;
+    private final List<Thread> writerThreads = new ArrayList<>();
+
+    public GroupCommitProductService(@Qualifier("productServiceImpl") ProductService delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.groupSize = DistributionSummary.builder("product.group-commit.size")
+                .description("Product creates written per group commit")
+                .register(meterRegistry);
+        this.groupFallbacks = Counter.builder("product.group-commit.fallbacks")
+                .description("Groups that failed and were written again one product at a time")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        running = true;
+        for (int i = 0; i < writers; i++) {
+            String name = "product-group-commit-" + i;
+            writerThreads.add(virtualThreads
+                    ? Thread.ofVirtual().name(name).start(this::writeGroups)
+                    : Thread.ofPlatform().name(name).daemon(true).start(this::writeGroups));
+        }
+        log.info("Group commit started with {} writers, groups of up to {} creates within {} us",
+                writers, maxGroupSize, maxWait.toNanos() / 1000);
+    }
+
+    @Override
+    public void stop() {
+        // Writers finish what is queued before they exit
+        running = false;
+        for (Thread writer : writerThreads) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writerThreads.clear();
+        log.info("Group commit stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public Product createProduct(Product product) {
+        if (product == null) {
+            throw new ProductException("Product is invalid");
+        }
+        if (!running) {
+            return delegate.createProduct(product);
+        }
+        PendingCreate pending = new PendingCreate(product, new CompletableFuture<>());
+        if (!queue.offer(pending) || (!running && queue.remove(pending))) {
+            return delegate.createProduct(product);
+        }
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Product> createProducts(List<Product> products) {
+        return delegate.createProducts(products);
+    }
+
+    @Override
+    public Product getProduct(UUID id) {
+        return delegate.getProduct(id);
+    }
+
+    @Override
+    public Product updateProduct(UUID id, Product product, long expectedVersion) {
+        return delegate.updateProduct(id, product, expectedVersion);
+    }
+
+    @Override
+    public void deleteProduct(UUID id, Long expectedVersion) {
+        delegate.deleteProduct(id, expectedVersion);
+    }
+
+    @Override
+    public List<Product> listProducts(Instant afterCreatedAt, UUID afterId, int limit) {
+        return delegate.listProducts(afterCreatedAt, afterId, limit);
+    }
+
+    private void writeGroups() {
+        List<PendingCreate> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingCreate first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                collectGroup(group);
+                write(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Group commit writer failed: {}", e.getMessage(), e);
+                group.forEach(pending -> pending.result().completeExceptionally(e));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void collectGroup(List<PendingCreate> group) throws InterruptedException {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (group.size() < maxGroupSize) {
+            // Take whatever is already queued before waiting for more
+            if (queue.drainTo(group, maxGroupSize - group.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            PendingCreate next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void write(List<PendingCreate> group) {
+        groupSize.record(group.size());
+        if (group.size() == 1) {
+            writeOne(group.getFirst());
+            return;
+        }
+        try {
+            List<Product> saved = delegate.createProducts(group.stream().map(PendingCreate::product).toList());
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).result().complete(saved.get(i));
+            }
+            log.debug("Group committed {} products", group.size());
+        } catch (RuntimeException e) {
+            groupFallbacks.increment();
+            log.warn("Group commit of {} products failed, writing them one by one: {}", group.size(), e.getMessage());
+            for (PendingCreate pending : group) {
+                // The rolled back insert may have left a generated id and version on the entity
+                pending.product().setId(null);
+                pending.product().setVersion(null);
+                writeOne(pending);
+            }
+        }
+    }
+
+    private void writeOne(PendingCreate pending) {
+        try {
+            pending.result().complete(delegate.createProduct(pending.product()));
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private record PendingCreate(Product product, CompletableFuture<Product> result) {
+    }
+}
@@ -8,12 +8,21 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
 @Service
 public class ProductEventServiceImpl implements ProductEventService {
+    private static final int MARK_PUBLISHED_CHUNK_SIZE = 1000;
+    private static final int MAX_ERROR_LENGTH = 500;
 
     private final ProductEventRepository productEventRepository;
 
@@ -27,19 +36,132 @@ public class ProductEventServiceImpl implements ProductEventService {
         return productEventRepository.save(event);
     }
 
+    @Override
+    @Transactional
+    public List<ProductEvent> saveAll(List<ProductEvent> events) {
+        return productEventRepository.saveAllAndFlush(events);
+    }
+
     @Override
     public List<ProductEvent> findTopUnpublishedOrderByCreatedAt(int limit) {
         return productEventRepository.findTopUnpublishedOrderByCreatedAt(PageRequest.of(0, limit));
     }
 
+    /**
+     * Claims up to {@code limit} unpublished events for {@code owner}. Rows are locked with
+     * FOR UPDATE SKIP LOCKED, so concurrent publishers never claim the same event, and the
+     * lease is written in the same transaction. Events whose lease expired (e.g. the owner
+     * died before acknowledging) become claimable again. Claims of the same product are
+     * serialized with an advisory lock that is held until the lease commits.
+     */
+    @Override
+    @Transactional
+    public List<ProductEvent> claimUnpublished(String owner, int limit, Duration leaseDuration) {
+        Instant now = Instant.now();
+        List<ProductEvent> events = productEventRepository.lockClaimable(now, limit);
+        if (events.isEmpty()) {
+            return events;
+        }
+        Set<UUID> heldBack = new HashSet<>(productEventRepository.findHeldBack(events.stream().map(ProductEvent::getId).toList(), now));
+        if (!heldBack.isEmpty()) {
+            log.debug("Worker {} leaves {} events behind a concurrently committed claim", owner, heldBack.size());
+            events = events.stream().filter(event -> !heldBack.contains(event.getId())).toList();
+            if (events.isEmpty()) {
+                return events;
+            }
+        }
+        Instant expiresAt = now.plus(leaseDuration);
+        productEventRepository.lease(events.stream().map(ProductEvent::getId).toList(), owner, expiresAt);
+        events.forEach(event -> {
+            event.setLeaseOwner(owner);
+            event.setLeaseExpiresAt(expiresAt);
+        });
+        log.debug("Worker {} claimed {} events until {}", owner, events.size(), expiresAt);
+        return events;
+    }
+
     @Override
     @Transactional
     public void markPublished(UUID eventId) {
-        ProductEvent event = productEventRepository.findById(eventId)
-                .orElseThrow(() -> new RuntimeException("Event not found"));
-        event.setPublished(true);
         log.debug("Marking event with ID {} as published", eventId);
-        productEventRepository.save(event);
+        if (productEventRepository.markPublished(List.of(eventId)) == 0) {
+            throw new RuntimeException("Event not found");
+        }
+    }
+
+    /**
+     * Marks all given events as published with set-based UPDATE statements, one per
+     * {@value #MARK_PUBLISHED_CHUNK_SIZE} ids, all in a single transaction.
+     */
+    @Override
+    @Transactional
+    public int markPublished(Collection<UUID> eventIds) {
+        if (eventIds.isEmpty()) {
+            return 0;
+        }
+        List<UUID> ids = new ArrayList<>(eventIds);
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += MARK_PUBLISHED_CHUNK_SIZE) {
+            updated += productEventRepository.markPublished(ids.subList(from, Math.min(from + MARK_PUBLISHED_CHUNK_SIZE, ids.size())));
+        }
+        log.debug("Marked {} of {} events as published", updated, ids.size());
+        return updated;
+    }
+
+    /**
+     * Releases the lease of events whose send failed and keeps them from being claimed again
+     * before {@code nextAttemptAt}.
+     */
+    @Override
+    @Transactional
+    public int scheduleRetry(Collection<UUID> eventIds, Instant nextAttemptAt, String error) {
+        if (eventIds.isEmpty()) {
+            return 0;
+        }
+        int updated = productEventRepository.scheduleRetry(eventIds, nextAttemptAt, truncate(error));
+        log.debug("Scheduled {} of {} events for a retry at {}", updated, eventIds.size(), nextAttemptAt);
+        return updated;
+    }
+
+    /**
+     * Gives up on events: they stay unpublished but are never claimed again. Requeue them by
+     * clearing {@code dead_lettered_at}.
+     */
+    @Override
+    @Transactional
+    public int deadLetter(Collection<UUID> eventIds, String error) {
+        if (eventIds.isEmpty()) {
+            return 0;
+        }
+        return productEventRepository.deadLetter(eventIds, Instant.now(), truncate(error));
+    }
+
+    /**
+     * Makes every event waiting for a retry claimable right away, e.g. once Kafka is back.
+     */
+    @Override
+    @Transactional
+    public int releaseRetries() {
+        return productEventRepository.releaseRetries(Instant.now());
+    }
+
+    @Override
+    public long countUnpublished() {
+        return productEventRepository.countByPublishedFalseAndDeadLetteredAtIsNull();
+    }
+
+    @Override
+    public long countDeadLettered() {
+        return productEventRepository.countByDeadLetteredAtIsNotNull();
+    }
+
+    @Override
+    public Optional<Instant> findOldestUnpublishedCreatedAt() {
+        return productEventRepository.findOldestUnpublishedCreatedAt();
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
     }
 
 }
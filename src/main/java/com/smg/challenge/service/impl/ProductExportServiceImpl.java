@@ -0,0 +1,135 @@
+package com.smg.challenge.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smg.challenge.exception.ProductException;
+import com.smg.challenge.exception.ProductExportAbortedException;
+import com.smg.challenge.service.ProductExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the whole catalog as gzip NDJSON straight from a forward-only JDBC cursor. The
+ * Postgres driver only uses a server-side cursor inside a transaction and with a fetch size
+ * set, so rows are pulled {@code product.export.fetch-size} at a time and each one is written
+ * to the stream as soon as it is read; no entities are built and heap use does not grow with
+ * the table.
+ * <p>
+ * Nothing is written before the first row, so a failure up to then still gets a 500. A failure
+ * after that aborts the export without the gzip trailer, so clients see a broken file instead
+ * of a short one that looks complete.
+ */
+@Slf4j
+@Service
+public class ProductExportServiceImpl implements ProductExportService {
+    private static final String EXPORT_QUERY = "SELECT id, name, price, created_at FROM products";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${product.export.fetch-size:5000}")
+    private int fetchSize = 5000;
+
+    @Value("${product.export.buffer-size:65536}")
+    private int bufferSize = 65536;
+
+    public ProductExportServiceImpl(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream output) {
+        long start = System.nanoTime();
+        NdjsonGzipWriter writer = new NdjsonGzipWriter(output);
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(EXPORT_QUERY,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, resultSet -> {
+                try {
+                    writer.write(resultSet);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            if (!writer.started()) {
+                log.warn("Product export failed before the first row", e);
+                throw new ProductException("Product export failed");
+            }
+            log.error("Product export aborted after {} rows", writer.rows, e);
+            throw new ProductExportAbortedException("Product export aborted after " + writer.rows + " rows", e);
+        }
+
+        double seconds = Math.max((System.nanoTime() - start) / 1_000_000_000.0, 0.001);
+        log.info("Exported {} products in {} s ({} rows/s)", writer.rows,
+                String.format("%.1f", seconds), String.format("%.0f", writer.rows / seconds));
+        return writer.rows;
+    }
+
+    /**
+     * Opens the gzip stream, which writes its header, only for the first row. On failure it is
+     * left unclosed: closing it would write the trailer and make a truncated export look valid.
+     */
+    private final class NdjsonGzipWriter {
+        private final OutputStream output;
+        private JsonGenerator generator;
+        private long rows;
+
+        private NdjsonGzipWriter(OutputStream output) {
+            this.output = output;
+        }
+
+        private boolean started() {
+            return generator != null;
+        }
+
+        private void write(ResultSet resultSet) throws IOException, SQLException {
+            start();
+            writeRow(generator, resultSet);
+            rows++;
+        }
+
+        private void finish() throws IOException {
+            start();
+            // Closes the gzip stream, which writes its trailer, and the output
+            generator.close();
+        }
+
+        private void start() throws IOException {
+            if (generator == null) {
+                generator = objectMapper.getFactory().createGenerator(new GZIPOutputStream(output, bufferSize));
+                generator.setRootValueSeparator(null);
+            }
+        }
+    }
+
+    private static void writeRow(JsonGenerator generator, ResultSet resultSet) throws IOException, SQLException {
+        Timestamp createdAt = resultSet.getTimestamp("created_at");
+        generator.writeStartObject();
+        generator.writeStringField("id", resultSet.getObject("id", UUID.class).toString());
+        generator.writeStringField("name", resultSet.getString("name"));
+        generator.writeNumberField("price", resultSet.getBigDecimal("price"));
+        generator.writeStringField("createdAt", createdAt == null ? null : createdAt.toInstant().toString());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
@@ -0,0 +1,296 @@
+package com.smg.challenge.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smg.challenge.dto.ProductImportError;
+import com.smg.challenge.dto.ProductImportFormat;
+import com.smg.challenge.dto.ProductImportReport;
+import com.smg.challenge.dto.ProductRequest;
+import com.smg.challenge.exception.GenericException;
+import com.smg.challenge.mapper.ProductMapper;
+import com.smg.challenge.model.Product;
+import com.smg.challenge.service.ProductImportService;
+import com.smg.challenge.service.ProductService;
+import com.smg.challenge.validation.ProductRequestValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Imports products from an NDJSON or CSV stream one line at a time. Valid records are written
+ * in chunks of {@code product.import.chunk-size}, each chunk in its own transaction through
+ * {@link ProductService#createProducts}, so heap use is bounded by the chunk size and
+ * {@code product.import.max-line-length} and not the file size. Longer lines are skipped and
+ * rejected. Reading pauses while a chunk is written, which pushes back on the client through
+ * the socket. A failed chunk is written again one record at a time, so only the records that
+ * fail on their own are rejected, and the import goes on with the next chunk.
+ * <p>
+ * CSV input needs a header line with {@code name} and {@code price} columns; quoted fields may
+ * contain commas and doubled quotes but no line breaks.
+ */
+@Slf4j
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private final ProductService productService;
+    private final ProductMapper productMapper;
+    private final ProductRequestValidator productRequestValidator;
+    private final ObjectMapper objectMapper;
+
+    @Value("${product.import.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${product.import.max-reported-errors:1000}")
+    private int maxReportedErrors = 1000;
+
+    @Value("${product.import.max-line-length:65536}")
+    private int maxLineLength = 65536;
+
+    public ProductImportServiceImpl(ProductService productService,
+                                    ProductMapper productMapper,
+                                    ProductRequestValidator productRequestValidator,
+                                    ObjectMapper objectMapper) {
+        this.productService = productService;
+        this.productMapper = productMapper;
+        this.productRequestValidator = productRequestValidator;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ProductImportReport importProducts(InputStream input, ProductImportFormat format) {
+        ImportRun run = new ImportRun();
+        LineReader reader = new LineReader(new InputStreamReader(input, StandardCharsets.UTF_8), maxLineLength);
+        try {
+            int[] csvColumns = format == ProductImportFormat.CSV ? readCsvHeader(reader, run) : null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                run.lineNumber++;
+                if (reader.tooLong()) {
+                    run.recordsRead++;
+                    run.reject(run.lineNumber, run.lineNumber, 1, List.of("Line is longer than " + maxLineLength + " characters"));
+                    continue;
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                run.recordsRead++;
+                ProductRequest request;
+                try {
+                    request = format == ProductImportFormat.CSV
+                            ? parseCsvRecord(line, csvColumns)
+                            : objectMapper.readValue(line, ProductRequest.class);
+                } catch (Exception e) {
+                    run.reject(run.lineNumber, run.lineNumber, 1, List.of("Malformed record: " + e.getMessage()));
+                    continue;
+                }
+                List<String> errors = productRequestValidator.validate(request);
+                if (!errors.isEmpty()) {
+                    run.reject(run.lineNumber, run.lineNumber, 1, errors);
+                    continue;
+                }
+                run.chunk.add(productMapper.toProduct(request));
+                run.chunkLines.add(run.lineNumber);
+                if (run.chunk.size() == chunkSize) {
+                    flush(run);
+                }
+            }
+            flush(run);
+        } catch (IOException e) {
+            throw new GenericException("Reading import stream failed after line " + run.lineNumber, e);
+        }
+        log.info("Import finished: {} records read, {} created, {} rejected", run.recordsRead, run.created, run.rejected);
+        return new ProductImportReport(run.recordsRead, run.created, run.rejected, run.chunksCommitted,
+                run.chunksFailed, run.errors, run.errorsTruncated);
+    }
+
+    private void flush(ImportRun run) {
+        if (run.chunk.isEmpty()) {
+            return;
+        }
+        try {
+            productService.createProducts(run.chunk);
+            run.created += run.chunk.size();
+            run.chunksCommitted++;
+            log.info("Import progress: chunk {} committed, {} records read, {} created, {} rejected",
+                    run.chunksCommitted, run.recordsRead, run.created, run.rejected);
+        } catch (RuntimeException e) {
+            run.chunksFailed++;
+            log.warn("Import chunk for lines {}-{} failed, writing its records one by one: {}",
+                    run.chunkLines.getFirst(), run.chunkLines.getLast(), e.getMessage());
+            for (int i = 0; i < run.chunk.size(); i++) {
+                Product product = run.chunk.get(i);
+                // The rolled back insert may have left a generated id and version on the entity
+                product.setId(null);
+                product.setVersion(null);
+                try {
+                    productService.createProduct(product);
+                    run.created++;
+                } catch (RuntimeException recordFailure) {
+                    long line = run.chunkLines.get(i);
+                    run.reject(line, line, 1, List.of("Record failed: " + recordFailure.getMessage()));
+                }
+            }
+        }
+        run.chunk = new ArrayList<>(chunkSize);
+        run.chunkLines = new ArrayList<>(chunkSize);
+    }
+
+    private int[] readCsvHeader(LineReader reader, ImportRun run) throws IOException {
+        String header = reader.readLine();
+        run.lineNumber++;
+        if (header == null) {
+            throw new GenericException("CSV import is empty", null);
+        }
+        if (reader.tooLong()) {
+            throw new GenericException("CSV header is longer than " + maxLineLength + " characters", null);
+        }
+        List<String> columns = parseCsvLine(header).stream()
+                .map(column -> column.strip().toLowerCase(Locale.ROOT))
+                .toList();
+        int name = columns.indexOf("name");
+        int price = columns.indexOf("price");
+        if (name < 0 || price < 0) {
+            throw new GenericException("CSV header must contain name and price columns", null);
+        }
+        return new int[]{name, price};
+    }
+
+    private static ProductRequest parseCsvRecord(String line, int[] columns) {
+        List<String> fields = parseCsvLine(line);
+        if (fields.size() <= Math.max(columns[0], columns[1])) {
+            throw new IllegalArgumentException("expected at least " + (Math.max(columns[0], columns[1]) + 1) + " fields");
+        }
+        String price = fields.get(columns[1]).strip();
+        return new ProductRequest(fields.get(columns[0]), price.isEmpty() ? null : new BigDecimal(price));
+    }
+
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private class ImportRun {
+        private long lineNumber;
+        private long recordsRead;
+        private long created;
+        private long rejected;
+        private int chunksCommitted;
+        private int chunksFailed;
+        private List<Product> chunk = new ArrayList<>(chunkSize);
+        private List<Long> chunkLines = new ArrayList<>(chunkSize);
+        private final List<ProductImportError> errors = new ArrayList<>();
+        private boolean errorsTruncated;
+
+        private void reject(long fromLine, long toLine, int records, List<String> messages) {
+            rejected += records;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ProductImportError(fromLine, toLine, messages));
+            } else {
+                errorsTruncated = true;
+            }
+        }
+    }
+
+    /**
+     * Reads lines like {@link BufferedReader#readLine()}, but never holds more than
+     * {@code maxLength} characters of one line: the rest of a longer line is skipped, an empty
+     * line is returned in its place and {@link #tooLong()} is set.
+     */
+    private static final class LineReader {
+        private final Reader reader;
+        private final int maxLength;
+        private final char[] buffer = new char[64 * 1024];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean tooLong;
+
+        private LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        private String readLine() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean read = false;
+            while (position < limit || fill()) {
+                read = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                append(start, position);
+                if (position < limit) {
+                    position++;
+                    return finish();
+                }
+            }
+            return read ? finish() : null;
+        }
+
+        private boolean tooLong() {
+            return tooLong;
+        }
+
+        private boolean fill() throws IOException {
+            limit = reader.read(buffer);
+            position = 0;
+            return limit > 0;
+        }
+
+        private void append(int from, int to) {
+            // One character beyond the limit is kept, so a trailing \r alone does not make a line too long
+            int room = maxLength + 1 - line.length();
+            if (to - from > room) {
+                tooLong = true;
+            }
+            line.append(buffer, from, Math.max(0, Math.min(to - from, room)));
+        }
+
+        private String finish() {
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                length--;
+            }
+            tooLong |= length > maxLength;
+            return tooLong ? "" : line.substring(0, length);
+        }
+    }
+}
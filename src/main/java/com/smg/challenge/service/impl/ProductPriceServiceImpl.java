@@ -0,0 +1,101 @@
+package com.smg.challenge.service.impl;
+
+import com.smg.challenge.dto.ProductPriceHit;
+import com.smg.challenge.dto.ProductPriceRangeResponse;
+import com.smg.challenge.dto.ProductPriceStatsResponse;
+import com.smg.challenge.service.ProductPriceService;
+import com.smg.challenge.service.consumer.ProductProjection;
+import com.smg.challenge.service.search.ProductPriceIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves price range queries and price statistics from an in-memory {@link ProductPriceIndex},
+ * loaded and kept current by ProductProjectionFeed.
+ */
+@Slf4j
+@Service
+public class ProductPriceServiceImpl implements ProductPriceService, ProductProjection {
+
+    private final ProductPriceIndex index = new ProductPriceIndex();
+    private final Timer rangeTimer;
+    private final Timer statsTimer;
+
+    public ProductPriceServiceImpl(MeterRegistry meterRegistry) {
+        this.rangeTimer = Timer.builder("product.price.range")
+                .description("Time to answer a price range query from the in-memory index")
+                .register(meterRegistry);
+        this.statsTimer = Timer.builder("product.price.stats")
+                .description("Time to compute price statistics from the in-memory index")
+                .register(meterRegistry);
+        Gauge.builder("product.price.index.size", index, ProductPriceIndex::size)
+                .description("Products in the price index")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ProductPriceRangeResponse findByPriceRange(BigDecimal min, BigDecimal max, int limit) {
+        long start = System.nanoTime();
+        try {
+            // Only whole cents are stored, so the bounds are narrowed to the cents inside them
+            long minCents = min.setScale(2, RoundingMode.CEILING).unscaledValue().longValueExact();
+            long maxCents = max.setScale(2, RoundingMode.FLOOR).unscaledValue().longValueExact();
+            int total = index.countInRange(minCents, maxCents);
+            List<ProductPriceHit> items = new ArrayList<>(Math.min(limit, total));
+            index.forEachInRange(minCents, maxCents, limit, (most, least, cents) ->
+                    items.add(new ProductPriceHit(new UUID(most, least), ProductPriceIndex.fromCents(cents))));
+            return new ProductPriceRangeResponse(total, items);
+        } finally {
+            rangeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public ProductPriceStatsResponse priceStats(List<Double> percentiles) {
+        long start = System.nanoTime();
+        try {
+            ProductPriceIndex.Stats stats = index.stats(percentiles.stream().mapToDouble(Double::doubleValue).toArray());
+            if (stats == null) {
+                return new ProductPriceStatsResponse(0, null, null, null, Map.of());
+            }
+            Map<String, BigDecimal> byPercentile = new LinkedHashMap<>();
+            for (int i = 0; i < percentiles.size(); i++) {
+                byPercentile.put(BigDecimal.valueOf(percentiles.get(i)).stripTrailingZeros().toPlainString(),
+                        ProductPriceIndex.fromCents(stats.percentileCents()[i]));
+            }
+            return new ProductPriceStatsResponse(stats.count(), ProductPriceIndex.fromCents(stats.minCents()),
+                    ProductPriceIndex.fromCents(stats.maxCents()), ProductPriceIndex.fromCents(stats.averageCents()),
+                    byPercentile);
+        } finally {
+            statsTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void put(UUID id, String name, BigDecimal price, long version) {
+        index.put(id, ProductPriceIndex.toCents(price), version);
+    }
+
+    @Override
+    public void remove(UUID id, long version) {
+        index.remove(id, version);
+    }
+
+    @Override
+    public void loaded(long rows, long millis) {
+        log.info("Loaded product price index of {} products in {} ms, about {} MB",
+                index.size(), millis, index.estimatedBytes() / (1024 * 1024));
+    }
+}
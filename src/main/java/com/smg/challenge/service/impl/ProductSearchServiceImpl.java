@@ -0,0 +1,64 @@
+package com.smg.challenge.service.impl;
+
+import com.smg.challenge.dto.ProductSearchHit;
+import com.smg.challenge.service.ProductSearchService;
+import com.smg.challenge.service.consumer.ProductProjection;
+import com.smg.challenge.service.search.ProductNameIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves product name search from an in-memory {@link ProductNameIndex}, loaded and kept
+ * current by ProductProjectionFeed.
+ */
+@Slf4j
+@Service
+public class ProductSearchServiceImpl implements ProductSearchService, ProductProjection {
+
+    private final ProductNameIndex index = new ProductNameIndex();
+    private final Timer searchTimer;
+
+    public ProductSearchServiceImpl(MeterRegistry meterRegistry) {
+        this.searchTimer = Timer.builder("product.search")
+                .description("Time to answer a product name search from the in-memory index")
+                .register(meterRegistry);
+        Gauge.builder("product.search.index.size", index, ProductNameIndex::size)
+                .description("Products in the search index")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<ProductSearchHit> searchProducts(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            return index.search(query, limit);
+        } finally {
+            searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void put(UUID id, String name, BigDecimal price, long version) {
+        index.upsert(id, name, version);
+    }
+
+    @Override
+    public void remove(UUID id, long version) {
+        index.remove(id, version);
+    }
+
+    @Override
+    public void loaded(long rows, long millis) {
+        index.trimToSize();
+        log.info("Loaded product search index of {} products and {} terms in {} ms, about {} MB",
+                index.size(), index.termCount(), millis, index.estimatedBytes() / (1024 * 1024));
+    }
+}
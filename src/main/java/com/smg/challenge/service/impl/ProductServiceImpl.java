@@ -1,37 +1,98 @@
 package com.smg.challenge.service.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.smg.challenge.exception.GenericException;
+import com.smg.challenge.exception.ProductBatchTooLargeException;
+import com.smg.challenge.exception.ProductConflictException;
 import com.smg.challenge.exception.ProductException;
+import com.smg.challenge.exception.ProductNotFoundException;
 import com.smg.challenge.model.Product;
 import com.smg.challenge.model.ProductEvent;
 import com.smg.challenge.repository.ProductRepository;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
 import com.smg.challenge.service.ProductEventService;
 import com.smg.challenge.service.ProductService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 @Slf4j
 @Service
 public class ProductServiceImpl implements ProductService {
     private static final String AGGREGATE_TYPE_PRODUCT = "Product";
-    private static final String EVENT_TYPE_PRODUCT_CREATED = "ProductCreated";
+    public static final String EVENT_TYPE_PRODUCT_CREATED = "ProductCreated";
+    public static final String EVENT_TYPE_PRODUCT_UPDATED = "ProductUpdated";
+    public static final String EVENT_TYPE_PRODUCT_DELETED = "ProductDeleted";
+    public static final String PRODUCT_CACHE = "products";
 
     private final ProductRepository productRepository;
     private final ProductEventService productEventService;
-    private final ObjectMapper objectMapper;
+    private final ProductPayloadCodec payloadCodec;
+    private final Cache productCache;
+    private final Timer createTimer;
+    private final Counter createFailures;
+    private final Counter productsCreated;
 
+    @Value("${outbox.payload-format:JSON}")
+    private PayloadFormat payloadFormat = PayloadFormat.JSON;
+
+    @Value("${product.batch.max-size:10000}")
+    private int batchMaxSize = 10000;
+
+    @Value("${product.batch.chunk-size:500}")
+    private int batchChunkSize = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     public ProductServiceImpl(ProductRepository productRepository,
                               ProductEventService productEventService,
-                              ObjectMapper objectMapper) {
+                              ProductPayloadCodec payloadCodec,
+                              MeterRegistry meterRegistry,
+                              CacheManager cacheManager) {
         this.productRepository = productRepository;
         this.productEventService = productEventService;
-        this.objectMapper = objectMapper;
+        this.payloadCodec = payloadCodec;
+        // Puts and evictions inside a transaction only happen once it committed, so an update never
+        // evicts before its new row is visible to the read that reloads it
+        this.productCache = new TransactionAwareCacheDecorator(cacheManager.getCache(PRODUCT_CACHE));
+        // Meters are looked up once here so recording on the request path is only an increment
+        this.createTimer = Timer.builder("product.create")
+                .description("Time spent creating a product together with its outbox event")
+                .register(meterRegistry);
+        this.createFailures = Counter.builder("product.create.failures")
+                .description("Product creates that failed")
+                .register(meterRegistry);
+        this.productsCreated = Counter.builder("product.created")
+                .description("Products created, single and batch")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (batchChunkSize <= 0 || batchMaxSize <= 0) {
+            throw new IllegalStateException("product.batch.chunk-size and product.batch.max-size must be positive, not "
+                    + batchChunkSize + " and " + batchMaxSize);
+        }
     }
 
     @Transactional
@@ -40,33 +101,182 @@ public class ProductServiceImpl implements ProductService {
             throw new ProductException("Product is invalid");
         }
         log.info("Creating product: {}", product);
-        product.setCreatedAt(Instant.now());
-        Product savedProduct = productRepository.save(product);
-        log.debug("Saved product: {}", savedProduct);
-        String productPayload;
+        long start = System.nanoTime();
         try {
-            productPayload = objectMapper.writeValueAsString(savedProduct);
-            log.debug("Serialized product to JSON: {}", productPayload);
-        } catch (Exception e) {
-            throw new GenericException("Serialization failed", e);
+            product.setCreatedAt(Instant.now());
+            Product savedProduct = productRepository.save(product);
+            log.debug("Saved product: {}", savedProduct);
+            byte[] productPayload = payloadCodec.encode(savedProduct, payloadFormat);
+            log.debug("Serialized product to {} payload of {} bytes", payloadFormat, productPayload.length);
+            createAndSaveProductCreatedEvent(savedProduct, productPayload);
+            productsCreated.increment();
+            log.info("Product created successfully with ID {}", savedProduct.getId());
+            return savedProduct;
+        } catch (RuntimeException e) {
+            createFailures.increment();
+            throw e;
+        } finally {
+            createTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Creates all products and their ProductCreated events in a single transaction.
+     * Rows are written in chunks of {@code product.batch.chunk-size} so Hibernate can
+     * send them as JDBC batches instead of one INSERT round trip per row. Each chunk is
+     * flushed and detached before the next one, so the persistence context never holds more
+     * than one chunk of products and events.
+     */
+    @Transactional
+    public List<Product> createProducts(List<Product> products) {
+        if (products == null || products.isEmpty() || products.stream().anyMatch(Objects::isNull)) {
+            throw new ProductException("Product batch is invalid");
+        }
+        if (products.size() > batchMaxSize) {
+            throw new ProductBatchTooLargeException("Product batch of " + products.size()
+                    + " items exceeds maximum size of " + batchMaxSize);
+        }
+        log.info("Creating {} products in batch", products.size());
+        Instant now = Instant.now();
+        List<Product> savedProducts = new ArrayList<>(products.size());
+        for (int from = 0; from < products.size(); from += batchChunkSize) {
+            List<Product> chunk = products.subList(from, Math.min(from + batchChunkSize, products.size()));
+            chunk.forEach(product -> product.setCreatedAt(now));
+            List<Product> savedChunk = productRepository.saveAllAndFlush(chunk);
+            List<ProductEvent> events = new ArrayList<>(savedChunk.size());
+            for (Product savedProduct : savedChunk) {
+                events.add(buildProductEvent(savedProduct, EVENT_TYPE_PRODUCT_CREATED, payloadCodec.encode(savedProduct, payloadFormat)));
+            }
+            productEventService.saveAll(events);
+            entityManager.flush();
+            entityManager.clear();
+            savedProducts.addAll(savedChunk);
+            log.debug("Saved product chunk {}-{} of {}", from, from + savedChunk.size(), products.size());
         }
-        createAndSaveProductCreatedEvent(savedProduct, productPayload);
-        log.info("Product created successfully with ID {}", savedProduct.getId());
+        productsCreated.increment(savedProducts.size());
+        log.info("Batch of {} products created successfully", savedProducts.size());
+        return savedProducts;
+    }
+
+    /**
+     * Served from the local {@value #PRODUCT_CACHE} cache; entries are evicted on every node when
+     * an event for the product shows up on the products topic (see ProductCacheInvalidator). The
+     * cache holds an immutable copy and every caller gets a product of its own.
+     */
+    @Transactional(readOnly = true)
+    public Product getProduct(UUID id) {
+        CachedProduct cached = productCache.get(id, CachedProduct.class);
+        if (cached == null) {
+            log.debug("Loading product {} from database", id);
+            cached = CachedProduct.of(productRepository.findById(id)
+                    .orElseThrow(() -> new ProductNotFoundException("Product " + id + " does not exist")));
+            productCache.put(id, cached);
+        }
+        return cached.toProduct();
+    }
+
+    /**
+     * Changes name and price if the product is still at {@code expectedVersion} and writes a
+     * ProductUpdated event with the new state. No row lock is taken: the UPDATE only matches
+     * the version that was read, so a concurrent writer makes it fail with a conflict instead
+     * of being overwritten. An update that changes nothing writes neither the row nor an event.
+     */
+    @Transactional
+    public Product updateProduct(UUID id, Product product, long expectedVersion) {
+        if (product == null) {
+            throw new ProductException("Product is invalid");
+        }
+        Product existing = findForChange(id, expectedVersion);
+        if (existing.getName().equals(product.getName()) && existing.getPrice().compareTo(product.getPrice()) == 0) {
+            log.debug("Product {} is unchanged at version {}", id, expectedVersion);
+            return existing;
+        }
+        existing.setName(product.getName());
+        existing.setPrice(product.getPrice());
+        Product savedProduct;
+        try {
+            savedProduct = productRepository.saveAndFlush(existing);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ProductConflictException("Product " + id + " was changed concurrently");
+        }
+        productEventService.save(buildProductEvent(savedProduct, EVENT_TYPE_PRODUCT_UPDATED,
+                payloadCodec.encode(savedProduct, payloadFormat)));
+        productCache.evict(id);
+        log.info("Product {} updated to version {}", id, savedProduct.getVersion());
         return savedProduct;
     }
 
-    private void createAndSaveProductCreatedEvent(Product savedProduct, String productPayload) {
+    /**
+     * Deletes the product and writes a ProductDeleted event carrying its last state. Without
+     * {@code expectedVersion} the current version is deleted; a concurrent update still makes
+     * the DELETE fail with a conflict.
+     */
+    @Transactional
+    public void deleteProduct(UUID id, Long expectedVersion) {
+        Product existing = findForChange(id, expectedVersion);
+        byte[] productPayload = payloadCodec.encode(existing, payloadFormat);
+        try {
+            productRepository.delete(existing);
+            productRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            throw new ProductConflictException("Product " + id + " was changed concurrently");
+        }
+        productEventService.save(buildProductEvent(existing, EVENT_TYPE_PRODUCT_DELETED, productPayload));
+        productCache.evict(id);
+        log.info("Product {} deleted at version {}", id, existing.getVersion());
+    }
+
+    /**
+     * Keyset page ordered by (createdAt, id): starts after the given position, or at the
+     * beginning when no position is given. Costs the same no matter how deep the page is.
+     */
+    @Transactional(readOnly = true)
+    public List<Product> listProducts(Instant afterCreatedAt, UUID afterId, int limit) {
+        if (afterCreatedAt == null || afterId == null) {
+            return productRepository.findFirstPage(limit);
+        }
+        return productRepository.findPageAfter(afterCreatedAt, afterId, limit);
+    }
+
+    private void createAndSaveProductCreatedEvent(Product savedProduct, byte[] productPayload) {
         log.debug("Creating ProductCreated event for productId={}", savedProduct.getId());
-        ProductEvent event = ProductEvent.builder()
+        productEventService.save(buildProductEvent(savedProduct, EVENT_TYPE_PRODUCT_CREATED, productPayload));
+        log.info("ProductEvent saved for productId={}", savedProduct.getId());
+    }
+
+    private Product findForChange(UUID id, Long expectedVersion) {
+        Product existing = productRepository.findById(id)
+                .orElseThrow(() -> new ProductNotFoundException("Product " + id + " does not exist"));
+        if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+            throw new ProductConflictException("Product " + id + " is at version " + existing.getVersion()
+                    + ", not " + expectedVersion);
+        }
+        return existing;
+    }
+
+    private record CachedProduct(UUID id, String name, BigDecimal price, Instant createdAt, Long version) {
+
+        static CachedProduct of(Product product) {
+            return new CachedProduct(product.getId(), product.getName(), product.getPrice(), product.getCreatedAt(),
+                    product.getVersion());
+        }
+
+        Product toProduct() {
+            return new Product(id, name, price, createdAt, version);
+        }
+    }
+
+    private ProductEvent buildProductEvent(Product savedProduct, String eventType, byte[] productPayload) {
+        return ProductEvent.builder()
                 .aggregateType(AGGREGATE_TYPE_PRODUCT)
                 .aggregateId(savedProduct.getId())
-                .eventType(EVENT_TYPE_PRODUCT_CREATED)
+                .eventType(eventType)
                 .payload(productPayload)
+                .payloadFormat(payloadFormat)
+                .payloadSchemaVersion(payloadFormat == PayloadFormat.BINARY ? ProductPayloadCodec.BINARY_SCHEMA_VERSION : null)
                 .createdAt(Instant.now())
                 .published(false)
                 .build();
-        productEventService.save(event);
-        log.info("ProductEvent saved for productId={}", savedProduct.getId());
     }
 
 }
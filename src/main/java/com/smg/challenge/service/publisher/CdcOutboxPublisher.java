@@ -0,0 +1,290 @@
+package com.smg.challenge.service.publisher;
+
+import com.smg.challenge.model.ProductEvent;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes outbox events from the Postgres write-ahead log instead of polling the table.
+ * Inserts into {@code product_event} are read from the logical replication slot
+ * {@code outbox.cdc.slot-name} through the {@code pgoutput} plugin and the publication
+ * {@code outbox.cdc.publication} (changeset 009), and sent to Kafka. Once every event up to a
+ * commit is acknowledged, that commit's LSN is confirmed to the slot. The confirmed LSN is the
+ * only checkpoint; {@code published} is never updated. After a crash the slot replays from the
+ * last confirmed LSN, so delivery is at least once, like the polling publisher.
+ * <p>
+ * Needs {@code wal_level=logical} and a user with the REPLICATION attribute. Selected with
+ * {@code outbox.publisher.mode=cdc}; the default {@code polling} mode uses PublishScheduler.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${scheduling.enabled:true} and '${outbox.publisher.mode:polling}' == 'cdc'")
+public class CdcOutboxPublisher implements SmartLifecycle {
+    private static final String OUTBOX_TABLE = "product_event";
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final ProductPayloadCodec payloadCodec;
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final Timer sendTimer;
+    private final Counter sendFailures;
+    private final Counter eventsPublished;
+
+    @Value("${kafka.topic.products.format:JSON}")
+    private PayloadFormat topicFormat = PayloadFormat.JSON;
+
+    @Value("${outbox.cdc.slot-name:product_event_outbox}")
+    private String slotName = "product_event_outbox";
+
+    @Value("${outbox.cdc.publication:product_event_pub}")
+    private String publication = "product_event_pub";
+
+    @Value("${outbox.cdc.max-batch-size:1000}")
+    private int maxBatchSize = 1000;
+
+    @Value("${outbox.publisher.coalesce:true}")
+    private boolean coalesce = true;
+
+    @Value("${outbox.cdc.status-interval:10s}")
+    private Duration statusInterval = Duration.ofSeconds(10);
+
+    @Value("${outbox.cdc.reconnect-delay:5s}")
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread streamThread;
+
+    public CdcOutboxPublisher(KafkaTemplate<String, byte[]> kafkaTemplate,
+                              ProductPayloadCodec payloadCodec,
+                              DataSourceProperties dataSourceProperties,
+                              JdbcTemplate jdbcTemplate,
+                              MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.payloadCodec = payloadCodec;
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sendTimer = Timer.builder("outbox.kafka.send")
+                .description("Time from handing an event to the producer until Kafka acknowledged it")
+                .register(meterRegistry);
+        this.sendFailures = Counter.builder("outbox.kafka.send.failures")
+                .description("Events that Kafka did not acknowledge")
+                .register(meterRegistry);
+        this.eventsPublished = Counter.builder("outbox.events.published")
+                .description("Events acknowledged by Kafka and confirmed to the replication slot")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        streamThread = virtualThreads
+                ? Thread.ofVirtual().name("outbox-cdc-publisher").start(this::stream)
+                : Thread.ofPlatform().name("outbox-cdc-publisher").daemon(true).start(this::stream);
+        log.info("CDC outbox publisher started on slot {} for publication {}", slotName, publication);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (streamThread != null) {
+            try {
+                streamThread.join(reconnectDelay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeConnection();
+        log.info("CDC outbox publisher stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void stream() {
+        while (running) {
+            try {
+                ensureSlot();
+                connection = openReplicationConnection();
+                PGReplicationStream replicationStream = connection.unwrap(PGConnection.class).getReplicationAPI()
+                        .replicationStream()
+                        .logical()
+                        .withSlotName(slotName)
+                        .withSlotOption("proto_version", 1)
+                        .withSlotOption("publication_names", publication)
+                        .withStatusInterval((int) statusInterval.toMillis(), TimeUnit.MILLISECONDS)
+                        .start();
+                try (replicationStream) {
+                    forward(replicationStream);
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("CDC outbox stream failed, resuming from the last confirmed LSN in {} ms: {}",
+                            reconnectDelay.toMillis(), e.getMessage());
+                    sleep(reconnectDelay);
+                }
+            } finally {
+                closeConnection();
+            }
+        }
+    }
+
+    /**
+     * Collects events of committed transactions and sends them whenever the stream has nothing
+     * more pending or {@code max-batch-size} events are collected. The LSN of the last commit
+     * is confirmed only after all of its events were acknowledged.
+     */
+    private void forward(PGReplicationStream replicationStream) throws SQLException {
+        PgOutputDecoder decoder = new PgOutputDecoder();
+        List<ProductEvent> transaction = new ArrayList<>();
+        List<ProductEvent> batch = new ArrayList<>();
+        long committedLsn = 0;
+        while (running) {
+            ByteBuffer buffer = replicationStream.readPending();
+            if (buffer == null) {
+                if (committedLsn != 0) {
+                    sendAndConfirm(replicationStream, batch, committedLsn);
+                    committedLsn = 0;
+                }
+                sleep(Duration.ofMillis(10));
+                continue;
+            }
+            PgOutputDecoder.Message message = decoder.decode(buffer);
+            if (message instanceof PgOutputDecoder.Insert insert && OUTBOX_TABLE.equals(insert.table())) {
+                transaction.add(toEvent(insert));
+            } else if (message instanceof PgOutputDecoder.Commit commit) {
+                batch.addAll(transaction);
+                transaction.clear();
+                committedLsn = commit.endLsn();
+                if (batch.size() >= maxBatchSize) {
+                    sendAndConfirm(replicationStream, batch, committedLsn);
+                    committedLsn = 0;
+                }
+            }
+        }
+    }
+
+    private void sendAndConfirm(PGReplicationStream replicationStream, List<ProductEvent> batch, long lsn) throws SQLException {
+        if (!batch.isEmpty()) {
+            List<OutboxRecords.Change> changes = OutboxRecords.coalesce(batch, coalesce, payloadCodec);
+            List<CompletableFuture<?>> acks = new ArrayList<>(changes.size());
+            for (OutboxRecords.Change change : changes) {
+                long sentAt = System.nanoTime();
+                acks.add(kafkaTemplate.send(OutboxRecords.toRecord(change.latest(), payloadCodec, topicFormat))
+                        .whenComplete((result, ex) -> {
+                            if (ex == null) {
+                                sendTimer.record(System.nanoTime() - sentAt, TimeUnit.NANOSECONDS);
+                            } else {
+                                sendFailures.increment();
+                            }
+                        }));
+            }
+            // A failed send ends the stream without confirming, so the slot replays this batch
+            CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)).join();
+            eventsPublished.increment(batch.size());
+            log.debug("Published {} events as {} records from the WAL up to LSN {}", batch.size(), changes.size(),
+                    LogSequenceNumber.valueOf(lsn));
+            batch.clear();
+        }
+        LogSequenceNumber confirmed = LogSequenceNumber.valueOf(lsn);
+        replicationStream.setAppliedLSN(confirmed);
+        replicationStream.setFlushedLSN(confirmed);
+        replicationStream.forceUpdateStatus();
+    }
+
+    private ProductEvent toEvent(PgOutputDecoder.Insert insert) {
+        String payload = insert.values().get("payload");
+        String schemaVersion = insert.values().get("payload_schema_version");
+        return ProductEvent.builder()
+                .id(UUID.fromString(insert.values().get("id")))
+                .aggregateType(insert.values().get("aggregate_type"))
+                .aggregateId(UUID.fromString(insert.values().get("aggregate_id")))
+                .eventType(insert.values().get("event_type"))
+                // bytea arrives in hex text form: \x0a1b...
+                .payload(HexFormat.of().parseHex(payload, 2, payload.length()))
+                .payloadFormat(PayloadFormat.valueOf(insert.values().get("payload_format")))
+                .payloadSchemaVersion(schemaVersion == null ? null : Integer.valueOf(schemaVersion))
+                .published(false)
+                .build();
+    }
+
+    private void ensureSlot() throws SQLException {
+        Integer slots = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_replication_slots WHERE slot_name = ?", Integer.class, slotName);
+        if (slots != null && slots > 0) {
+            return;
+        }
+        try (Connection slotConnection = openReplicationConnection()) {
+            slotConnection.unwrap(PGConnection.class).getReplicationAPI()
+                    .createReplicationSlot()
+                    .logical()
+                    .withSlotName(slotName)
+                    .withOutputPlugin("pgoutput")
+                    .make();
+        }
+        log.info("Created logical replication slot {}", slotName);
+    }
+
+    private Connection openReplicationConnection() throws SQLException {
+        Properties properties = new Properties();
+        PGProperty.USER.set(properties, dataSourceProperties.determineUsername());
+        PGProperty.PASSWORD.set(properties, dataSourceProperties.determinePassword());
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(properties, "10");
+        PGProperty.REPLICATION.set(properties, "database");
+        PGProperty.PREFER_QUERY_MODE.set(properties, "simple");
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+    }
+
+    private void closeConnection() {
+        Connection current = connection;
+        connection = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                log.debug("Closing CDC replication connection failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
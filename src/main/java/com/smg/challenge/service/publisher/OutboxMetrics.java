@@ -0,0 +1,64 @@
+package com.smg.challenge.service.publisher;
+
+import com.smg.challenge.service.ProductEventService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Publishes the outbox backlog size, the age of the oldest unpublished event and the number of
+ * dead-lettered events as gauges. They come from the database, so they are refreshed every
+ * {@code outbox.metrics.refresh-interval} (served by partial indexes) instead of being queried
+ * on every scrape. Only
+ * the polling publisher sets {@code published}, so the gauges are not registered in CDC mode.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+@ConditionalOnProperty(value = "outbox.publisher.mode", havingValue = "polling", matchIfMissing = true)
+public class OutboxMetrics {
+    private final ProductEventService productEventService;
+
+    private volatile long backlog;
+    private volatile long deadLetters;
+    private volatile Instant oldestUnpublishedAt;
+
+    public OutboxMetrics(ProductEventService productEventService, MeterRegistry meterRegistry) {
+        this.productEventService = productEventService;
+        Gauge.builder("outbox.backlog", this, metrics -> metrics.backlog)
+                .description("Outbox events not yet published to Kafka")
+                .register(meterRegistry);
+        Gauge.builder("outbox.oldest.unpublished.age", this, OutboxMetrics::oldestUnpublishedAgeSeconds)
+                .description("Age of the oldest outbox event not yet published to Kafka")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("outbox.dead.letters", this, metrics -> metrics.deadLetters)
+                .description("Outbox events given up on after failed sends, not counted in the backlog")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.metrics.refresh-interval:10s}")
+    public void refresh() {
+        try {
+            backlog = productEventService.countUnpublished();
+            oldestUnpublishedAt = productEventService.findOldestUnpublishedCreatedAt().orElse(null);
+            deadLetters = productEventService.countDeadLettered();
+        } catch (DataAccessException e) {
+            log.warn("Could not refresh outbox metrics: {}", e.getMessage());
+        }
+    }
+
+    // Computed at scrape time so the age keeps growing between refreshes while the outbox is stuck
+    private double oldestUnpublishedAgeSeconds() {
+        Instant oldest = oldestUnpublishedAt;
+        return oldest == null ? 0 : Math.max(0, Duration.between(oldest, Instant.now()).toMillis() / 1000.0);
+    }
+}
@@ -0,0 +1,132 @@
+package com.smg.challenge.service.publisher;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Listens on the {@code product_event} Postgres channel, notified by a trigger on every
+ * committed insert into the outbox, and wakes the {@link PublishScheduler} so new events are
+ * published immediately instead of on the next poll. Uses its own connection outside the
+ * Hikari pool. Polling stays active as a fallback if notifications are lost or the
+ * connection drops.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${scheduling.enabled:true} and ${outbox.notify.enabled:false} and '${outbox.publisher.mode:polling}' == 'polling'")
+public class OutboxNotificationListener implements SmartLifecycle {
+    private static final String CHANNEL = "product_event";
+
+    private final PublishScheduler publishScheduler;
+    private final DataSourceProperties dataSourceProperties;
+
+    @Value("${outbox.notify.reconnect-delay:5s}")
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread listenerThread;
+
+    public OutboxNotificationListener(PublishScheduler publishScheduler, DataSourceProperties dataSourceProperties) {
+        this.publishScheduler = publishScheduler;
+        this.dataSourceProperties = dataSourceProperties;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        // Wake-ups drain the outbox on this thread, so it blocks on JDBC and Kafka acks like the scheduler does
+        listenerThread = virtualThreads
+                ? Thread.ofVirtual().name("outbox-notify-listener").start(this::listen)
+                : Thread.ofPlatform().name("outbox-notify-listener").daemon(true).start(this::listen);
+        log.info("Outbox notification listener started on channel {}", CHANNEL);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        closeConnection();
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            try {
+                listenerThread.join(reconnectDelay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Outbox notification listener stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try {
+                connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                        dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                // Drain once after (re)connecting to pick up anything committed while not listening
+                publishScheduler.wakeUp();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications != null && notifications.length > 0) {
+                        log.debug("Received {} outbox notifications", notifications.length);
+                        publishScheduler.wakeUp();
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Outbox notification connection failed, retrying in {} ms: {}", reconnectDelay.toMillis(), e.getMessage());
+                    sleep(reconnectDelay);
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.error("Outbox wake-up failed: {}", e.getMessage(), e);
+                    sleep(reconnectDelay);
+                }
+            } finally {
+                closeConnection();
+            }
+        }
+    }
+
+    private void closeConnection() {
+        Connection current = connection;
+        connection = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                log.debug("Closing outbox notification connection failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.smg.challenge.service.publisher;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Maintains the daily partitions of {@code product_event}: creates partitions
+ * {@code outbox.partition.days-ahead} days in advance and removes partitions older than
+ * {@code outbox.partition.retention-days} once every event in them is published. Old
+ * partitions are detached and dropped (or only detached) instead of deleting rows.
+ * <p>
+ * The default partition {@code product_event_default} catches events of days without a
+ * partition, so writes keep working while maintenance is disabled or failing. Rows that land
+ * there are logged, and published ones past the retention are deleted. While the default
+ * partition exists, partitions are detached without CONCURRENTLY; without it they are detached
+ * CONCURRENTLY, so inserts and claims keep running meanwhile.
+ * <p>
+ * Every replica schedules the run, but only the one holding a Postgres advisory lock does the
+ * work. A failure is logged and left to the next run instead of failing startup.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "outbox.partition.maintenance.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxPartitionMaintenance {
+    private static final String PARTITION_PREFIX = "product_event_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String DEFAULT_PARTITION = "product_event_default";
+    private static final String LOCK_NAME = "product_event_partition_maintenance";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${outbox.partition.days-ahead:7}")
+    private int daysAhead = 7;
+
+    @Value("${outbox.partition.retention-days:7}")
+    private int retentionDays = 7;
+
+    @Value("${outbox.partition.drop-detached:true}")
+    private boolean dropDetached = true;
+
+    @Value("${outbox.publisher.mode:polling}")
+    private String publisherMode = "polling";
+
+    public OutboxPartitionMaintenance(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${outbox.partition.maintenance-cron:0 5 * * * *}")
+    public void maintainPartitions() {
+        try {
+            // The advisory lock belongs to the session, so the whole run stays on one connection. It
+            // runs outside a transaction, which DETACH PARTITION ... CONCURRENTLY requires
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                if (!Boolean.TRUE.equals(session.queryForObject(
+                        "SELECT pg_try_advisory_lock(hashtext(?))", Boolean.class, LOCK_NAME))) {
+                    log.debug("Outbox partition maintenance is running on another instance");
+                    return null;
+                }
+                try {
+                    // Partition bounds are in database time, so "today" is taken from the database as well
+                    LocalDate today = session.queryForObject("SELECT CURRENT_DATE", LocalDate.class);
+                    createUpcomingPartitions(session, today);
+                    removeExpiredPartitions(session, today);
+                    cleanDefaultPartition(session, today);
+                } finally {
+                    session.queryForObject("SELECT pg_advisory_unlock(hashtext(?))", Boolean.class, LOCK_NAME);
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            log.warn("Outbox partition maintenance failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    private void createUpcomingPartitions(JdbcTemplate session, LocalDate today) {
+        for (int i = 0; i <= daysAhead; i++) {
+            LocalDate day = today.plusDays(i);
+            try {
+                session.execute("CREATE TABLE IF NOT EXISTS " + partitionName(day)
+                        + " PARTITION OF product_event FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+            } catch (DataAccessException e) {
+                log.warn("Could not create partition for {}: {}", day, e.getMessage());
+            }
+        }
+    }
+
+    private void removeExpiredPartitions(JdbcTemplate session, LocalDate today) {
+        LocalDate cutoff = today.minusDays(retentionDays);
+        List<Partition> partitions = session.query("""
+                SELECT c.relname, i.inhdetachpending FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = 'product_event' AND c.relname LIKE 'product\\_event\\_p%'
+                ORDER BY c.relname""", (rs, rowNum) -> new Partition(rs.getString(1), rs.getBoolean(2)));
+        // CONCURRENTLY is not allowed while product_event has a default partition
+        boolean concurrently = !hasDefaultPartition(session);
+
+        for (Partition partition : partitions) {
+            LocalDate day = LocalDate.parse(partition.name().substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+            if (!day.isBefore(cutoff)) {
+                break;
+            }
+            try {
+                if (partition.detachPending()) {
+                    // An interrupted concurrent detach leaves the partition half detached until finalized
+                    session.execute("ALTER TABLE product_event DETACH PARTITION " + partition.name() + " FINALIZE");
+                } else {
+                    // The CDC publisher never sets published; the replication slot keeps unsent changes in the WAL instead
+                    Boolean hasUnpublished = "cdc".equals(publisherMode) ? Boolean.FALSE : session.queryForObject(
+                            "SELECT EXISTS (SELECT 1 FROM " + partition.name() + " WHERE published = false)", Boolean.class);
+                    if (Boolean.TRUE.equals(hasUnpublished)) {
+                        log.warn("Keeping expired partition {} because it still has unpublished events", partition.name());
+                        continue;
+                    }
+                    session.execute("ALTER TABLE product_event DETACH PARTITION " + partition.name()
+                            + (concurrently ? " CONCURRENTLY" : ""));
+                }
+                if (dropDetached) {
+                    session.execute("DROP TABLE " + partition.name());
+                }
+                log.info("Removed outbox partition {} ({})", partition.name(), dropDetached ? "dropped" : "detached");
+            } catch (DataAccessException e) {
+                log.warn("Could not remove outbox partition {}: {}", partition.name(), e.getMessage());
+            }
+        }
+    }
+
+    private void cleanDefaultPartition(JdbcTemplate session, LocalDate today) {
+        if (!hasDefaultPartition(session)) {
+            return;
+        }
+        try {
+            // The CDC publisher never sets published, see removeExpiredPartitions
+            int deleted = session.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE created_at < ?"
+                    + ("cdc".equals(publisherMode) ? "" : " AND published = true"), today.minusDays(retentionDays));
+            if (deleted > 0) {
+                log.info("Deleted {} expired events from {}", deleted, DEFAULT_PARTITION);
+            }
+            Long remaining = session.queryForObject("SELECT count(*) FROM " + DEFAULT_PARTITION, Long.class);
+            if (remaining != null && remaining > 0) {
+                // Also keeps the partition of their day from being created until they are gone
+                log.warn("{} holds {} events of days without a partition, check that maintenance keeps up",
+                        DEFAULT_PARTITION, remaining);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not clean {}: {}", DEFAULT_PARTITION, e.getMessage());
+        }
+    }
+
+    private static boolean hasDefaultPartition(JdbcTemplate session) {
+        return Boolean.TRUE.equals(session.queryForObject(
+                "SELECT partdefid <> 0 FROM pg_partitioned_table WHERE partrelid = 'product_event'::regclass", Boolean.class));
+    }
+
+    private static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + day.format(PARTITION_SUFFIX);
+    }
+
+    private record Partition(String name, boolean detachPending) {
+    }
+}
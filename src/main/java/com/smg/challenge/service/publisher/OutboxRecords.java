@@ -0,0 +1,107 @@
+package com.smg.challenge.service.publisher;
+
+import com.smg.challenge.model.ProductEvent;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import com.smg.challenge.service.impl.ProductServiceImpl;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Turns outbox events into products topic records, shared by the polling and the CDC publisher.
+ */
+final class OutboxRecords {
+    static final String TOPIC = "products";
+
+    private OutboxRecords() {
+    }
+
+    /**
+     * Keyed by aggregate, so all events of a product land in one partition in claim order.
+     * The payload is sent as stored unless the topic uses a different format. Only binary
+     * records carry a schema version, the one the payload was written in; JSON is self-describing.
+     */
+    static ProducerRecord<String, byte[]> toRecord(ProductEvent event, ProductPayloadCodec payloadCodec, PayloadFormat topicFormat) {
+        byte[] payload = payloadCodec.transcode(event.getPayload(), event.getPayloadFormat(), schemaVersion(event), topicFormat);
+        ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(TOPIC, event.getAggregateId().toString(), payload);
+        producerRecord.headers()
+                .add(new RecordHeader(PublishScheduler.EVENT_TYPE_HEADER, event.getEventType().getBytes(StandardCharsets.UTF_8)))
+                .add(new RecordHeader(PublishScheduler.CONTENT_TYPE_HEADER, topicFormat.getContentType().getBytes(StandardCharsets.UTF_8)));
+        if (topicFormat == PayloadFormat.BINARY) {
+            int schemaVersion = event.getPayloadFormat() == topicFormat ? schemaVersion(event) : ProductPayloadCodec.BINARY_SCHEMA_VERSION;
+            producerRecord.headers().add(new RecordHeader(PublishScheduler.SCHEMA_VERSION_HEADER,
+                    String.valueOf(schemaVersion).getBytes(StandardCharsets.UTF_8)));
+        }
+        return producerRecord;
+    }
+
+    // Rows written before the column was added hold binary schema version 1
+    static int schemaVersion(ProductEvent event) {
+        return event.getPayloadSchemaVersion() == null ? 1 : event.getPayloadSchemaVersion();
+    }
+
+    /**
+     * Collapses the events of each aggregate to the latest one. The result keeps the claim order
+     * by the position of each aggregate's last event. Every product event carries the full state,
+     * so the latest one is all a consumer needs. Which one is latest is decided by the product
+     * version in the payload and not by position, since {@code created_at} comes from the clocks
+     * of different instances; a ProductDeleted wins over everything, as a product is never written
+     * after its delete. With {@code coalesce} off every event is its own change.
+     */
+    static List<Change> coalesce(List<ProductEvent> events, boolean coalesce, ProductPayloadCodec payloadCodec) {
+        if (!coalesce) {
+            return events.stream().map(event -> new Change(event, List.of(event.getId()), event.getAttempts())).toList();
+        }
+        Map<UUID, List<ProductEvent>> byAggregate = new LinkedHashMap<>();
+        for (ProductEvent event : events) {
+            List<ProductEvent> aggregateEvents = byAggregate.remove(event.getAggregateId());
+            if (aggregateEvents == null) {
+                aggregateEvents = new ArrayList<>(1);
+            }
+            aggregateEvents.add(event);
+            // Re-inserted so the aggregate moves to the position of its latest event
+            byAggregate.put(event.getAggregateId(), aggregateEvents);
+        }
+        List<Change> changes = new ArrayList<>(byAggregate.size());
+        for (List<ProductEvent> aggregateEvents : byAggregate.values()) {
+            changes.add(new Change(latest(aggregateEvents, payloadCodec), aggregateEvents.stream().map(ProductEvent::getId).toList(),
+                    aggregateEvents.stream().mapToInt(ProductEvent::getAttempts).max().orElse(0)));
+        }
+        return changes;
+    }
+
+    // On equal versions the later position wins, as it did before payloads carried versions
+    private static ProductEvent latest(List<ProductEvent> aggregateEvents, ProductPayloadCodec payloadCodec) {
+        if (aggregateEvents.size() == 1) {
+            return aggregateEvents.getFirst();
+        }
+        ProductEvent latest = null;
+        long latestVersion = Long.MIN_VALUE;
+        for (ProductEvent event : aggregateEvents) {
+            if (ProductServiceImpl.EVENT_TYPE_PRODUCT_DELETED.equals(event.getEventType())) {
+                return event;
+            }
+            Long version = payloadCodec.decode(event.getPayload(), event.getPayloadFormat(), schemaVersion(event)).getVersion();
+            long eventVersion = version == null ? 0 : version;
+            if (eventVersion >= latestVersion) {
+                latest = event;
+                latestVersion = eventVersion;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * The event that is sent for an aggregate, the ids of all outbox events it stands for and the
+     * most failed sends of any of them.
+     */
+    record Change(ProductEvent latest, List<UUID> eventIds, int attempts) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.smg.challenge.service.publisher;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the messages of the Postgres {@code pgoutput} logical replication plugin, protocol
+ * version 1, as far as the CDC publisher needs them: relations, inserts and commits. Column
+ * values arrive in their text representation. Relation messages are remembered, so one decoder
+ * has to see the whole stream of a replication connection.
+ */
+public class PgOutputDecoder {
+
+    public sealed interface Message permits Insert, Commit {
+    }
+
+    /**
+     * A new row in {@code table}; values by column name, {@code null} for SQL NULL.
+     */
+    public record Insert(String table, Map<String, String> values) implements Message {
+    }
+
+    /**
+     * End of a transaction; {@code endLsn} is the position to confirm once it has been handled.
+     */
+    public record Commit(long endLsn) implements Message {
+    }
+
+    private record Relation(String name, List<String> columns) {
+    }
+
+    private final Map<Integer, Relation> relations = new HashMap<>();
+
+    /**
+     * Returns the decoded insert or commit, or {@code null} for every other message type.
+     */
+    public Message decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        return switch (type) {
+            case 'R' -> {
+                readRelation(buffer);
+                yield null;
+            }
+            case 'I' -> readInsert(buffer);
+            case 'C' -> {
+                buffer.get(); // flags
+                buffer.getLong(); // commit LSN
+                yield new Commit(buffer.getLong());
+            }
+            default -> null;
+        };
+    }
+
+    private void readRelation(ByteBuffer buffer) {
+        int relationId = buffer.getInt();
+        readString(buffer); // namespace
+        String name = readString(buffer);
+        buffer.get(); // replica identity
+        int columnCount = buffer.getShort();
+        List<String> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            buffer.get(); // flags
+            columns.add(readString(buffer));
+            buffer.getInt(); // type oid
+            buffer.getInt(); // type modifier
+        }
+        relations.put(relationId, new Relation(name, columns));
+    }
+
+    private Insert readInsert(ByteBuffer buffer) {
+        Relation relation = relations.get(buffer.getInt());
+        if (relation == null) {
+            throw new IllegalStateException("Insert for a relation that was not announced");
+        }
+        buffer.get(); // 'N', new tuple
+        int columnCount = buffer.getShort();
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            byte kind = buffer.get();
+            String value = null;
+            if (kind == 't') {
+                byte[] text = new byte[buffer.getInt()];
+                buffer.get(text);
+                value = new String(text, StandardCharsets.UTF_8);
+            }
+            values.put(relation.columns().get(i), value);
+        }
+        return new Insert(relation.name(), values);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int start = buffer.position();
+        while (buffer.get() != 0) {
+            // scan to the terminating zero byte
+        }
+        byte[] bytes = new byte[buffer.position() - start - 1];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -2,52 +2,477 @@ package com.smg.challenge.service.publisher;
 
 import com.smg.challenge.model.ProductEvent;
 import com.smg.challenge.repository.ProductEventRepository;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
 import com.smg.challenge.service.ProductEventService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RetriableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 @Slf4j
 @Component
-@ConditionalOnProperty(value = "scheduling.enabled", havingValue = "true", matchIfMissing = true)
-public class PublishScheduler {
+@ConditionalOnExpression("${scheduling.enabled:true} and '${outbox.publisher.mode:polling}' == 'polling'")
+public class PublishScheduler implements SchedulingConfigurer {
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String SCHEMA_VERSION_HEADER = "schema-version";
+    public static final String EVENT_TYPE_HEADER = "event-type";
 
     private final ProductEventService productEventService;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final ProductPayloadCodec payloadCodec;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer sendTimer;
+    private final Counter sendFailures;
+    private final Timer markPublishedTimer;
+    private final Counter eventsPublished;
+    private final Counter eventsCoalesced;
+    private final Counter eventsRetried;
+    private final Counter eventsDeadLettered;
 
-    public PublishScheduler(ProductEventService productEventService, KafkaTemplate<String, String> kafkaTemplate) {
+    @Value("${outbox.worker-id:#{T(java.util.UUID).randomUUID().toString()}}")
+    private String workerId = UUID.randomUUID().toString();
+
+    @Value("${kafka.topic.products.format:JSON}")
+    private PayloadFormat topicFormat = PayloadFormat.JSON;
+
+    @Value("${outbox.lease-duration:30s}")
+    private Duration leaseDuration = Duration.ofSeconds(30);
+
+    @Value("${kafka.producer.max-block-ms:5000}")
+    private long maxBlockMs = 5000;
+
+    @Value("${kafka.producer.delivery-timeout-ms:20000}")
+    private long deliveryTimeoutMs = 20000;
+
+    @Value("${outbox.publisher.adaptive:true}")
+    private boolean adaptive = true;
+
+    @Value("${outbox.publisher.poll-interval:1500ms}")
+    private Duration pollInterval = Duration.ofMillis(1500);
+
+    @Value("${outbox.publisher.batch-size.min:20}")
+    private int minBatchSize = 20;
+
+    @Value("${outbox.publisher.batch-size.max:1000}")
+    private int maxBatchSize = 1000;
+
+    @Value("${outbox.publisher.target-ack-latency:250ms}")
+    private Duration targetAckLatency = Duration.ofMillis(250);
+
+    @Value("${outbox.publisher.idle-backoff.min:50ms}")
+    private Duration minIdleBackoff = Duration.ofMillis(50);
+
+    @Value("${outbox.publisher.idle-backoff.max:5s}")
+    private Duration maxIdleBackoff = Duration.ofSeconds(5);
+
+    @Value("${outbox.publisher.max-drain-time:10s}")
+    private Duration maxDrainTime = Duration.ofSeconds(10);
+
+    @Value("${outbox.publisher.coalesce:true}")
+    private boolean coalesce = true;
+
+    @Value("${outbox.publisher.max-in-flight:10000}")
+    private int maxInFlight = 10000;
+
+    @Value("${outbox.publisher.ack-timeout:5s}")
+    private Duration ackTimeout = Duration.ofSeconds(5);
+
+    @Value("${outbox.retry.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Value("${outbox.retry.max-retriable-attempts:100}")
+    private int maxRetriableAttempts = 100;
+
+    @Value("${outbox.retry.backoff.initial:1s}")
+    private Duration initialRetryBackoff = Duration.ofSeconds(1);
+
+    @Value("${outbox.retry.backoff.max:1m}")
+    private Duration maxRetryBackoff = Duration.ofMinutes(1);
+
+    private int batchSize = minBatchSize;
+    private Duration idleBackoff = Duration.ZERO;
+    private volatile Duration nextDelay = Duration.ZERO;
+
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+
+    // Ids of events handed to the producer whose outcome is not persisted yet. They are never sent
+    // again meanwhile, and no more events are claimed while max-in-flight of them are outstanding
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    // Completed sends, persisted by the draining thread rather than the producer's I/O thread
+    private final Queue<SendOutcome> outcomes = new ConcurrentLinkedQueue<>();
+    // Guarded by drainLock
+    private boolean retriesPending;
+
+    public PublishScheduler(ProductEventService productEventService,
+                            KafkaTemplate<String, byte[]> kafkaTemplate,
+                            ProductPayloadCodec payloadCodec,
+                            MeterRegistry meterRegistry) {
         this.productEventService = productEventService;
         this.kafkaTemplate = kafkaTemplate;
+        this.payloadCodec = payloadCodec;
+        this.batchTimer = Timer.builder("outbox.publish.batch")
+                .description("Time to claim, send and mark one batch of outbox events")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("outbox.publish.batch.size")
+                .description("Events claimed per publish batch")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("outbox.kafka.send")
+                .description("Time from handing an event to the producer until Kafka acknowledged it")
+                .register(meterRegistry);
+        this.sendFailures = Counter.builder("outbox.kafka.send.failures")
+                .description("Events that Kafka did not acknowledge")
+                .register(meterRegistry);
+        this.markPublishedTimer = Timer.builder("outbox.mark.published")
+                .description("Time to mark a batch of acknowledged events as published")
+                .register(meterRegistry);
+        this.eventsPublished = Counter.builder("outbox.events.published")
+                .description("Events acknowledged by Kafka and marked as published")
+                .register(meterRegistry);
+        this.eventsCoalesced = Counter.builder("outbox.events.coalesced")
+                .description("Events marked as published without a record of their own because a later event of the same product was sent")
+                .register(meterRegistry);
+        this.eventsRetried = Counter.builder("outbox.events.retried")
+                .description("Events scheduled for another send after a failed one")
+                .register(meterRegistry);
+        this.eventsDeadLettered = Counter.builder("outbox.events.dead.lettered")
+                .description("Events given up on after retry.max-attempts or retry.max-retriable-attempts failed sends")
+                .register(meterRegistry);
+        Gauge.builder("outbox.publish.in.flight", inFlight, Set::size)
+                .description("Events sent to Kafka whose outcome is not persisted yet")
+                .register(meterRegistry);
     }
 
     @PostConstruct
     public void init() {
-        log.info("PublishScheduler is active");
+        // A send may block for max-block-ms and then take up to delivery-timeout-ms to complete. If
+        // that outlasts the lease, another instance claims and sends the event while it is in flight
+        Duration longestSend = Duration.ofMillis(maxBlockMs + deliveryTimeoutMs);
+        if (longestSend.compareTo(leaseDuration) >= 0) {
+            throw new IllegalStateException("kafka.producer.max-block-ms + kafka.producer.delivery-timeout-ms ("
+                    + longestSend.toMillis() + " ms) must be below outbox.lease-duration (" + leaseDuration.toMillis() + " ms)");
+        }
+        batchSize = minBatchSize;
+        nextDelay = adaptive ? Duration.ZERO : pollInterval;
+        log.info("PublishScheduler is active as worker {} in {} mode", workerId, adaptive ? "adaptive" : "fixed");
     }
 
-    @Scheduled(fixedDelay = 1500)
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        // The delay after each run is decided by the run itself, see publishEvents()
+        taskRegistrar.addTriggerTask(this::publishEvents, triggerContext -> {
+            Instant lastCompletion = triggerContext.lastCompletion();
+            return (lastCompletion != null ? lastCompletion : Instant.now()).plus(nextDelay);
+        });
+    }
+
+    /**
+     * In fixed mode publishes one batch of {@code batch-size.min} events every {@code poll-interval}.
+     * In adaptive mode keeps draining while full batches come back (up to {@code max-drain-time}),
+     * doubling the batch size while Kafka acks stay under {@code target-ack-latency} and halving it
+     * when they don't. An empty outbox backs off exponentially between {@code idle-backoff.min}
+     * and {@code idle-backoff.max}.
+     */
     public void publishEvents() {
-        log.debug("Querying unpublished product events for scheduled publishing");
-        List<ProductEvent> events = productEventService.findTopUnpublishedOrderByCreatedAt(20);
-        log.debug("Found {} unpublished product events to process", events.size());
+        drainRequested.set(true);
+        drainWhileRequested();
+    }
+
+    /**
+     * Drains the outbox right away, e.g. on a database notification. If a drain is already
+     * running on another thread, that thread runs one more drain instead, so no wake-up is lost.
+     */
+    public void wakeUp() {
+        publishEvents();
+    }
+
+    private void drainWhileRequested() {
+        while (drainRequested.get() && drainLock.tryLock()) {
+            try {
+                drainRequested.set(false);
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    private void drain() {
+        if (!adaptive) {
+            publishBatch(minBatchSize);
+            nextDelay = pollInterval;
+            return;
+        }
+
+        long deadline = System.nanoTime() + maxDrainTime.toNanos();
+        int published = 0;
+        boolean backlogLeft;
+        do {
+            int requested = batchSize;
+            long start = System.nanoTime();
+            int claimed = publishBatch(requested);
+            adjustBatchSize(claimed, requested, Duration.ofNanos(System.nanoTime() - start));
+            published += claimed;
+            backlogLeft = claimed == requested;
+        } while (backlogLeft && System.nanoTime() < deadline);
+
+        if (backlogLeft) {
+            nextDelay = Duration.ZERO;
+        } else if (published > 0 || !inFlight.isEmpty()) {
+            // Outstanding sends are settled on the next run, however quiet the outbox is
+            idleBackoff = minIdleBackoff;
+            nextDelay = minIdleBackoff;
+        } else {
+            idleBackoff = idleBackoff.isZero() ? minIdleBackoff : min(idleBackoff.multipliedBy(2), maxIdleBackoff);
+            nextDelay = idleBackoff;
+        }
+        log.debug("Drained {} events, next batch size {}, next run in {} ms", published, batchSize, nextDelay.toMillis());
+    }
 
-        for (ProductEvent event : events) {
+    private void adjustBatchSize(int claimed, int requested, Duration ackLatency) {
+        if (ackLatency.compareTo(targetAckLatency) > 0) {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+        } else if (claimed == requested) {
+            batchSize = Math.min(maxBatchSize, batchSize * 2);
+        }
+    }
+
+    private int publishBatch(int limit) {
+        long start = System.nanoTime();
+        try {
+            return claimAndPublish(limit);
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int claimAndPublish(int limit) {
+        settleOutcomes();
+        int room = maxInFlight - inFlight.size();
+        if (room <= 0) {
+            log.debug("{} events in flight, not claiming more until Kafka acknowledges some", inFlight.size());
+            return 0;
+        }
+        log.debug("Claiming up to {} unpublished product events for publishing", Math.min(limit, room));
+        List<ProductEvent> claimed = productEventService.claimUnpublished(workerId, Math.min(limit, room), leaseDuration);
+        log.debug("Claimed {} unpublished product events to process", claimed.size());
+
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        batchSizeSummary.record(claimed.size());
+        // Claimed again when the lease ran out before the ack came back; the outstanding send stands for them
+        List<ProductEvent> events = claimed.stream().filter(event -> !inFlight.contains(event.getId())).toList();
+
+        // Only the latest event of each product in the batch is sent; its ack publishes the ones it replaces
+        List<OutboxRecords.Change> changes = OutboxRecords.coalesce(events, coalesce, payloadCodec);
+        List<CompletableFuture<Void>> acks = new ArrayList<>(changes.size());
+        Throwable sendFailure = null;
+        for (OutboxRecords.Change change : changes) {
+            ProductEvent event = change.latest();
             log.debug("Publishing event with ID {} to Kafka", event.getId());
-            kafkaTemplate.send("products", event.getPayload())
-                    .thenAccept(result -> {
-                        productEventService.markPublished(event.getId());
-                        log.debug("Successfully published and persisted event ID {} to Kafka", event.getId());
-                    })
-                    .exceptionally(ex -> {
-                        log.error("Kafka send failed for event ID {}: {}", event.getId(), ex.getMessage(), ex);
-                        return null;
-                    });
+            inFlight.addAll(change.eventIds());
+            CompletableFuture<?> ack;
+            long sentAt = System.nanoTime();
+            if (sendFailure != null) {
+                // send() blocks for up to max.block.ms without broker metadata, so one such failure
+                // fails the rest of the batch instead of blocking once per record
+                ack = CompletableFuture.failedFuture(sendFailure);
+            } else {
+                try {
+                    ack = kafkaTemplate.send(toRecord(event));
+                } catch (Exception e) {
+                    ack = CompletableFuture.failedFuture(e);
+                }
+                if (ack.isCompletedExceptionally() && isRetriable(ack.exceptionNow())) {
+                    sendFailure = ack.exceptionNow();
+                }
+            }
+            acks.add(ack.handle((result, ex) -> {
+                if (ex == null) {
+                    sendTimer.record(System.nanoTime() - sentAt, TimeUnit.NANOSECONDS);
+                } else {
+                    sendFailures.increment();
+                    log.error("Kafka send failed for event ID {}: {}", event.getId(), ex.getMessage(), ex);
+                }
+                outcomes.add(new SendOutcome(change, ex));
+                return null;
+            }));
+        }
+
+        // Acks are collected for the whole batch and flushed with one set-based UPDATE. With
+        // spring.threads.virtual.enabled the wait parks a virtual thread instead of holding a platform one.
+        // Sends still unacknowledged after ack-timeout stay in flight and are settled by a later batch
+        try {
+            CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)).get(ackTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Kafka has not acknowledged all of {} events within {} ms, {} events in flight",
+                    events.size(), ackTimeout.toMillis(), inFlight.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Not thrown, every send completes its ack normally with its outcome
+            throw new IllegalStateException(e.getCause());
+        }
+        settleOutcomes();
+        return claimed.size();
+    }
+
+    /**
+     * Persists the outcome of every completed send: acknowledged events are marked as published,
+     * failed ones get a retry with exponential backoff, or are dead-lettered. Only after that
+     * are they taken out of the in-flight window.
+     */
+    private void settleOutcomes() {
+        List<SendOutcome> completed = new ArrayList<>();
+        for (SendOutcome outcome = outcomes.poll(); outcome != null; outcome = outcomes.poll()) {
+            completed.add(outcome);
+        }
+        if (completed.isEmpty()) {
+            return;
+        }
+        try {
+            List<UUID> publishedIds = new ArrayList<>();
+            int publishedChanges = 0;
+            List<SendOutcome> failed = new ArrayList<>();
+            for (SendOutcome outcome : completed) {
+                if (outcome.failure() == null) {
+                    publishedIds.addAll(outcome.change().eventIds());
+                    publishedChanges++;
+                } else {
+                    failed.add(outcome);
+                }
+            }
+            if (!publishedIds.isEmpty()) {
+                long markStart = System.nanoTime();
+                productEventService.markPublished(publishedIds);
+                markPublishedTimer.record(System.nanoTime() - markStart, TimeUnit.NANOSECONDS);
+                eventsPublished.increment(publishedIds.size());
+                eventsCoalesced.increment(publishedIds.size() - publishedChanges);
+                log.debug("Successfully published and persisted {} events to Kafka", publishedIds.size());
+                if (retriesPending) {
+                    // Kafka is back, so the events backed off during the outage need not wait any longer
+                    retriesPending = false;
+                    log.info("Kafka acknowledges again, released {} events waiting for a retry",
+                            productEventService.releaseRetries());
+                }
+            }
+            if (!failed.isEmpty()) {
+                scheduleRetries(failed);
+            }
+        } finally {
+            completed.forEach(outcome -> inFlight.removeAll(outcome.change().eventIds()));
+        }
+    }
+
+    /**
+     * A failed send is retried after {@code retry.backoff.initial} doubled per earlier attempt, up
+     * to {@code retry.backoff.max}. A retriable failure (the broker is unreachable, a timeout, too
+     * few replicas) usually goes away, so the events are dead-lettered only after
+     * {@code retry.max-retriable-attempts} failed sends; any other failure will not go away by
+     * itself, so they are dead-lettered after {@code retry.max-attempts}. Either way a rejected
+     * event stops holding back the later events of its product.
+     */
+    private void scheduleRetries(List<SendOutcome> failed) {
+        Instant now = Instant.now();
+        Map<Integer, List<UUID>> retriesByAttempts = new TreeMap<>();
+        Map<Integer, String> errorsByAttempts = new TreeMap<>();
+        List<UUID> deadLetters = new ArrayList<>();
+        String deadLetterError = null;
+        for (SendOutcome outcome : failed) {
+            int attempts = outcome.change().attempts() + 1;
+            String error = errorMessage(outcome.failure());
+            boolean retriable = isRetriable(outcome.failure());
+            if (attempts >= (retriable ? maxRetriableAttempts : maxAttempts)) {
+                deadLetters.addAll(outcome.change().eventIds());
+                deadLetterError = error;
+                continue;
+            }
+            if (retriable) {
+                retriesPending = true;
+            }
+            retriesByAttempts.computeIfAbsent(attempts, key -> new ArrayList<>()).addAll(outcome.change().eventIds());
+            errorsByAttempts.putIfAbsent(attempts, error);
+        }
+        retriesByAttempts.forEach((attempts, ids) -> {
+            productEventService.scheduleRetry(ids, now.plus(retryBackoff(attempts)), errorsByAttempts.get(attempts));
+            eventsRetried.increment(ids.size());
+        });
+        if (!deadLetters.isEmpty()) {
+            productEventService.deadLetter(deadLetters, deadLetterError);
+            eventsDeadLettered.increment(deadLetters.size());
+            log.error("Dead-lettered {} events after their last allowed send failed: {}", deadLetters.size(), deadLetterError);
+        }
+    }
+
+    private Duration retryBackoff(int attempts) {
+        Duration backoff = initialRetryBackoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return min(backoff, maxRetryBackoff);
+    }
+
+    private static boolean isRetriable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    private static String errorMessage(Throwable failure) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(failure);
+        return cause.getClass().getSimpleName() + ": " + cause.getMessage();
+    }
+
+    private ProducerRecord<String, byte[]> toRecord(ProductEvent event) {
+        return OutboxRecords.toRecord(event, payloadCodec, topicFormat);
+    }
+
+    public Duration getNextDelay() {
+        return nextDelay;
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private record SendOutcome(OutboxRecords.Change change, Throwable failure) {
     }
 }
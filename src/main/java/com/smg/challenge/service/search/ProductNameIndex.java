@@ -0,0 +1,366 @@
+package com.smg.challenge.service.search;
+
+import com.smg.challenge.dto.ProductSearchHit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over product names for prefix and token search.
+ * <p>
+ * Every indexed name is a document with an int id, assigned in insertion order. Product ids are
+ * kept as two {@code long[]} columns, names as UTF-8 in one shared byte array, and each lower
+ * cased token maps to a sorted {@code int[]} of document ids in a {@link TreeMap}, which also
+ * gives prefix ranges over the terms. Product ids are found through an open addressing table
+ * of document ids, so no {@link UUID} or boxed key is kept per product.
+ * <p>
+ * A changed name is indexed as a new document and the old one is marked deleted; a deleted
+ * product only gets its document marked. Postings of deleted documents stay until the index is
+ * rebuilt. Every document keeps the product version it was indexed at, and a deleted one the
+ * version the product was deleted at, so changes that arrive out of order are dropped instead of
+ * bringing back an older name or a deleted product. Reads and writes are guarded by a read-write
+ * lock.
+ */
+public final class ProductNameIndex {
+    private static final int INITIAL_DOCS = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] idMost = new long[INITIAL_DOCS];
+    private long[] idLeast = new long[INITIAL_DOCS];
+    private long[] versions = new long[INITIAL_DOCS];
+    private int[] nameOffsets = new int[INITIAL_DOCS + 1];
+    private byte[] nameData = new byte[INITIAL_DOCS * 32];
+    private int docCount;
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+
+    // Slots hold document id + 1 of the latest document of a product, 0 when empty
+    private int[] idTable = new int[INITIAL_DOCS * 2];
+    private int idCount;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    /**
+     * Indexes the name of a product at {@code version}, replacing its previous name. Indexing the
+     * same name again is a no-op, so replayed events are harmless. Ignored when the index holds a
+     * later version of the product, or it was deleted at this version or a later one.
+     */
+    public void upsert(UUID id, String name, long version) {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+            if (idTable[slot] != 0) {
+                int existing = idTable[slot] - 1;
+                boolean wasDeleted = deleted.get(existing);
+                if (version < versions[existing] || wasDeleted && version == versions[existing]) {
+                    return;
+                }
+                if (!wasDeleted && nameEquals(existing, encoded)) {
+                    versions[existing] = version;
+                    return;
+                }
+                markDeleted(existing);
+            } else {
+                idCount++;
+            }
+            idTable[slot] = addDocument(id, name, encoded, version) + 1;
+            if (idCount * 4L > idTable.length * 3L) {
+                growIdTable();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the product at {@code version}. Ignored when the index holds a later version. A
+     * product the index never held is still remembered as deleted, so its create arriving late is
+     * dropped.
+     */
+    public void remove(UUID id, long version) {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            if (idTable[slot] == 0) {
+                idCount++;
+                idTable[slot] = addDocument(id, "", new byte[0], version) + 1;
+                markDeleted(idTable[slot] - 1);
+                if (idCount * 4L > idTable.length * 3L) {
+                    growIdTable();
+                }
+                return;
+            }
+            int existing = idTable[slot] - 1;
+            if (version >= versions[existing]) {
+                markDeleted(existing);
+                versions[existing] = version;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Products whose names contain every token of the query, the last one as a prefix. Tokens
+     * are lower cased runs of letters and digits. Results are not ranked.
+     */
+    public List<ProductSearchHit> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String prefix = tokens.getLast();
+        lock.readLock().lock();
+        try {
+            Postings[] exact = new Postings[tokens.size() - 1];
+            for (int i = 0; i < exact.length; i++) {
+                exact[i] = terms.get(tokens.get(i));
+                if (exact[i] == null) {
+                    return List.of();
+                }
+            }
+            Arrays.sort(exact, (a, b) -> Integer.compare(a.size, b.size));
+            NavigableMap<String, Postings> prefixTerms = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            return exact.length > 0 && exact[0].size < countUpTo(prefixTerms, exact[0].size)
+                    ? searchByExactTokens(exact, prefix, limit)
+                    : searchByPrefixTerms(prefixTerms, exact, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate heap held by the index: the arrays exactly, the term dictionary with typical
+     * object sizes of a 64-bit JVM with compressed references.
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 24L * idMost.length + 4L * nameOffsets.length + nameData.length + 4L * idTable.length
+                    + deleted.size() / 8;
+            for (var term : terms.entrySet()) {
+                // TreeMap entry 40, String 24 + array 16, Postings 16 + array 16
+                bytes += 112 + term.getKey().length() + 4L * term.getValue().docs.length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the spare capacity left by growing, e.g. after a bulk build.
+     */
+    public void trimToSize() {
+        lock.writeLock().lock();
+        try {
+            idMost = Arrays.copyOf(idMost, docCount);
+            idLeast = Arrays.copyOf(idLeast, docCount);
+            versions = Arrays.copyOf(versions, docCount);
+            nameOffsets = Arrays.copyOf(nameOffsets, docCount + 1);
+            nameData = Arrays.copyOf(nameData, nameOffsets[docCount]);
+            terms.values().forEach(Postings::trimToSize);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>(4);
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i < lower.length(); i++) {
+            if (Character.isLetterOrDigit(lower.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(lower.substring(start));
+        }
+        return tokens;
+    }
+
+    private List<ProductSearchHit> searchByExactTokens(Postings[] exact, String prefix, int limit) {
+        List<ProductSearchHit> hits = new ArrayList<>(Math.min(limit, 64));
+        Postings driver = exact[0];
+        for (int i = 0; i < driver.size && hits.size() < limit; i++) {
+            int doc = driver.docs[i];
+            if (!deleted.get(doc) && containsInAll(exact, 1, doc)) {
+                String name = name(doc);
+                if (tokenize(name).stream().anyMatch(token -> token.startsWith(prefix))) {
+                    hits.add(hit(doc, name));
+                }
+            }
+        }
+        return hits;
+    }
+
+    private List<ProductSearchHit> searchByPrefixTerms(NavigableMap<String, Postings> prefixTerms, Postings[] exact, int limit) {
+        List<ProductSearchHit> hits = new ArrayList<>(Math.min(limit, 64));
+        // A name with two tokens sharing the prefix shows up under both terms
+        Set<Integer> seen = new HashSet<>();
+        for (Postings postings : prefixTerms.values()) {
+            for (int i = 0; i < postings.size; i++) {
+                int doc = postings.docs[i];
+                if (!deleted.get(doc) && containsInAll(exact, 0, doc) && seen.add(doc)) {
+                    hits.add(hit(doc, name(doc)));
+                    if (hits.size() == limit) {
+                        return hits;
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static boolean containsInAll(Postings[] postings, int from, int doc) {
+        for (int i = from; i < postings.length; i++) {
+            if (Arrays.binarySearch(postings[i].docs, 0, postings[i].size, doc) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int countUpTo(NavigableMap<String, Postings> prefixTerms, int max) {
+        int count = 0;
+        for (Postings postings : prefixTerms.values()) {
+            count += postings.size;
+            if (count > max) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private int addDocument(UUID id, String name, byte[] encoded, long version) {
+        if (docCount == idMost.length) {
+            int capacity = Math.max(INITIAL_DOCS, docCount + (docCount >> 1));
+            idMost = Arrays.copyOf(idMost, capacity);
+            idLeast = Arrays.copyOf(idLeast, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+        }
+        int offset = nameOffsets[docCount];
+        if (offset + encoded.length > nameData.length) {
+            nameData = Arrays.copyOf(nameData, Math.max(offset + encoded.length, nameData.length + (nameData.length >> 1)));
+        }
+        System.arraycopy(encoded, 0, nameData, offset, encoded.length);
+        int doc = docCount++;
+        idMost[doc] = id.getMostSignificantBits();
+        idLeast[doc] = id.getLeastSignificantBits();
+        versions[doc] = version;
+        nameOffsets[doc + 1] = offset + encoded.length;
+        for (String token : new HashSet<>(tokenize(name))) {
+            terms.computeIfAbsent(token, key -> new Postings()).add(doc);
+        }
+        return doc;
+    }
+
+    private void markDeleted(int doc) {
+        if (!deleted.get(doc)) {
+            deleted.set(doc);
+            deletedCount++;
+        }
+    }
+
+    private boolean nameEquals(int doc, byte[] encoded) {
+        return Arrays.equals(nameData, nameOffsets[doc], nameOffsets[doc + 1], encoded, 0, encoded.length);
+    }
+
+    private String name(int doc) {
+        return new String(nameData, nameOffsets[doc], nameOffsets[doc + 1] - nameOffsets[doc], StandardCharsets.UTF_8);
+    }
+
+    private ProductSearchHit hit(int doc, String name) {
+        return new ProductSearchHit(new UUID(idMost[doc], idLeast[doc]), name);
+    }
+
+    private int findSlot(long most, long least) {
+        int mask = idTable.length - 1;
+        int slot = hash(most, least) & mask;
+        while (idTable[slot] != 0) {
+            int doc = idTable[slot] - 1;
+            if (idMost[doc] == most && idLeast[doc] == least) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growIdTable() {
+        int[] old = idTable;
+        idTable = new int[old.length * 2];
+        int mask = idTable.length - 1;
+        for (int entry : old) {
+            if (entry != 0) {
+                int slot = hash(idMost[entry - 1], idLeast[entry - 1]) & mask;
+                while (idTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                idTable[slot] = entry;
+            }
+        }
+    }
+
+    private static int hash(long most, long least) {
+        long h = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static final class Postings {
+        private int[] docs = new int[2];
+        private int size;
+
+        // Documents are added in increasing id order, so appending keeps the list sorted
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size + (size >> 1) + 1);
+            }
+            docs[size++] = doc;
+        }
+
+        void trimToSize() {
+            docs = Arrays.copyOf(docs, size);
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.smg.challenge.service.search;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Products ordered by price, for price range queries and price statistics.
+ * <p>
+ * Prices are kept as {@code long} cents. Entries are sorted by price, then product id, and split
+ * into blocks of at most {@value #BLOCK_CAPACITY} entries, each holding three parallel
+ * {@code long[]} columns: cents and the two halves of the product id. Finding a price is a binary
+ * search over the blocks and then within one, and a change shifts entries of one block only, so
+ * both are O(log n + block size). A range is then walked in order without allocating per entry.
+ * The current price and version of each product are kept in an open addressing table keyed by
+ * product id, so a repriced or deleted product's old entry can be found. A deleted product stays
+ * in the table with the version it was deleted at, so changes that arrive out of order are
+ * dropped instead of bringing back an older price or a deleted product.
+ * <p>
+ * Counts of a range and percentiles add up block sizes and cost O(n / block size). Reads and
+ * writes are guarded by a read-write lock.
+ */
+public final class ProductPriceIndex {
+    private static final int BLOCK_CAPACITY = 512;
+    private static final int INITIAL_SLOTS = 1024;
+
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+    private static final byte DELETED = 2;
+
+    /**
+     * Receives the entries of a range in price order.
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long idMost, long idLeast, long priceCents);
+    }
+
+    /**
+     * Statistics over all indexed prices, in cents. The average is rounded half up to cents.
+     */
+    public record Stats(int count, long minCents, long maxCents, long averageCents, long[] percentileCents) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Never empty; only the sole block may have no entries
+    private Block[] blocks = {new Block()};
+    private int blockCount = 1;
+    private int size;
+    // Sum of all prices as a signed 128 bit number, so averages never overflow
+    private long sumHigh;
+    private long sumLow;
+
+    private long[] keyMost = new long[INITIAL_SLOTS];
+    private long[] keyLeast = new long[INITIAL_SLOTS];
+    private long[] keyCents = new long[INITIAL_SLOTS];
+    private long[] keyVersion = new long[INITIAL_SLOTS];
+    private byte[] keyState = new byte[INITIAL_SLOTS];
+    // Slots that are not FREE, including DELETED ones
+    private int keySlotsTaken;
+
+    /**
+     * A price in cents, rounded half up like the products table's {@code DECIMAL(20, 2)} column.
+     */
+    public static long toCents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Sets the price of a product at {@code version}. Setting the same price again is a no-op, so
+     * replayed events are harmless. Ignored when the index holds a later version of the product,
+     * or it was deleted at this version or a later one.
+     */
+    public void put(UUID id, long cents, long version) {
+        long most = id.getMostSignificantBits();
+        long least = id.getLeastSignificantBits();
+        lock.writeLock().lock();
+        try {
+            int slot = findKey(most, least);
+            if (slot < 0) {
+                insertKey(most, least, cents, version, USED);
+                insertEntry(cents, most, least);
+                return;
+            }
+            if (version < keyVersion[slot] || keyState[slot] == DELETED && version == keyVersion[slot]) {
+                return;
+            }
+            keyVersion[slot] = version;
+            if (keyState[slot] == USED) {
+                long previous = keyCents[slot];
+                if (previous == cents) {
+                    return;
+                }
+                removeEntry(previous, most, least);
+            }
+            keyState[slot] = USED;
+            keyCents[slot] = cents;
+            insertEntry(cents, most, least);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the product at {@code version}. Ignored when the index holds a later version. A
+     * product the index never held is still remembered as deleted, so its create arriving late is
+     * dropped.
+     */
+    public void remove(UUID id, long version) {
+        long most = id.getMostSignificantBits();
+        long least = id.getLeastSignificantBits();
+        lock.writeLock().lock();
+        try {
+            int slot = findKey(most, least);
+            if (slot < 0) {
+                insertKey(most, least, 0, version, DELETED);
+                return;
+            }
+            if (version < keyVersion[slot]) {
+                return;
+            }
+            if (keyState[slot] == USED) {
+                removeEntry(keyCents[slot], most, least);
+                keyState[slot] = DELETED;
+            }
+            keyVersion[slot] = version;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Visits up to {@code limit} products priced from {@code minCents} to {@code maxCents}, both
+     * inclusive, in the order of {@code ORDER BY price, id}. Returns how many were visited.
+     * The visitor runs under the read lock and must not call back into the index for writes.
+     */
+    public int forEachInRange(long minCents, long maxCents, int limit, EntryVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            int visited = 0;
+            int first = firstBlockReaching(minCents);
+            for (int b = first; b < blockCount; b++) {
+                Block block = blocks[b];
+                for (int i = b == first ? block.lowerBound(minCents) : 0; i < block.size; i++) {
+                    if (block.cents[i] > maxCents || visited == limit) {
+                        return visited;
+                    }
+                    visitor.visit(block.most[i], block.least[i], block.cents[i]);
+                    visited++;
+                }
+            }
+            return visited;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of products priced from {@code minCents} to {@code maxCents}, both inclusive.
+     */
+    public int countInRange(long minCents, long maxCents) {
+        if (minCents > maxCents) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            return countBelow(maxCents, true) - countBelow(minCents, false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count, minimum, maximum, average and the requested percentiles (0 to 100) of all prices,
+     * read under one lock so they are consistent. Percentiles are nearest-rank: the smallest
+     * price with at least that percentage of prices at or below it. Returns null when empty.
+     */
+    public Stats stats(double... percentiles) {
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return null;
+            }
+            long[] percentileCents = new long[percentiles.length];
+            for (int p = 0; p < percentiles.length; p++) {
+                long rank = (long) Math.ceil(percentiles[p] / 100.0 * size);
+                percentileCents[p] = centsAt(Math.clamp(rank - 1, 0, size - 1));
+            }
+            Block last = blocks[blockCount - 1];
+            return new Stats(size, blocks[0].cents[0], last.cents[last.size - 1], average(), percentileCents);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Heap held by the index's arrays, block headers included.
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            // Block object 24 + three arrays of 16 byte headers
+            long bytes = 4L * blocks.length + blockCount * (72L + 24L * BLOCK_CAPACITY);
+            return bytes + 33L * keyState.length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long average() {
+        BigInteger sum = BigInteger.valueOf(sumHigh).shiftLeft(64)
+                .add(new BigInteger(Long.toUnsignedString(sumLow)));
+        return new BigDecimal(sum).divide(BigDecimal.valueOf(size), 0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private long centsAt(int rank) {
+        for (int b = 0; b < blockCount; b++) {
+            if (rank < blocks[b].size) {
+                return blocks[b].cents[rank];
+            }
+            rank -= blocks[b].size;
+        }
+        throw new IllegalStateException("Rank beyond index size " + size);
+    }
+
+    // Entries priced below cents, or at most cents when inclusive
+    private int countBelow(long cents, boolean inclusive) {
+        int count = 0;
+        for (int b = 0; b < blockCount; b++) {
+            Block block = blocks[b];
+            if (block.size == 0) {
+                break;
+            }
+            long lastCents = block.cents[block.size - 1];
+            if (lastCents < cents || inclusive && lastCents == cents) {
+                count += block.size;
+            } else {
+                return count + (inclusive && cents == Long.MAX_VALUE ? block.size : block.lowerBound(inclusive ? cents + 1 : cents));
+            }
+        }
+        return count;
+    }
+
+    // First block whose last entry is priced at least cents, or blockCount if none is
+    private int firstBlockReaching(long cents) {
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Block block = blocks[mid];
+            if (block.size > 0 && block.cents[block.size - 1] >= cents) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    // Block an entry belongs in: the first whose last entry is not below it, else the last block
+    private int blockFor(long cents, long most, long least) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Block block = blocks[mid];
+            if (block.compare(block.size - 1, cents, most, least) >= 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private void insertEntry(long cents, long most, long least) {
+        int b = blockFor(cents, most, least);
+        Block block = blocks[b];
+        if (block.size == BLOCK_CAPACITY) {
+            Block upper = block.splitUpperHalf();
+            insertBlock(b + 1, upper);
+            if (block.compare(block.size - 1, cents, most, least) < 0) {
+                block = upper;
+            }
+        }
+        block.insert(block.lowerBound(cents, most, least), cents, most, least);
+        size++;
+        long low = sumLow + cents;
+        sumHigh += (cents >> 63) + (Long.compareUnsigned(low, sumLow) < 0 ? 1 : 0);
+        sumLow = low;
+    }
+
+    private void removeEntry(long cents, long most, long least) {
+        int b = blockFor(cents, most, least);
+        Block block = blocks[b];
+        int i = block.lowerBound(cents, most, least);
+        if (i == block.size || block.compare(i, cents, most, least) != 0) {
+            return;
+        }
+        block.remove(i);
+        if (block.size == 0 && blockCount > 1) {
+            System.arraycopy(blocks, b + 1, blocks, b, blockCount - b - 1);
+            blocks[--blockCount] = null;
+        }
+        size--;
+        long low = sumLow - cents;
+        sumHigh -= (cents >> 63) + (Long.compareUnsigned(low, sumLow) > 0 ? 1 : 0);
+        sumLow = low;
+    }
+
+    private void insertBlock(int at, Block block) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+        }
+        System.arraycopy(blocks, at, blocks, at + 1, blockCount - at);
+        blocks[at] = block;
+        blockCount++;
+    }
+
+    // Slot of the product, priced or deleted, or -1 when the index never saw it
+    private int findKey(long most, long least) {
+        int mask = keyState.length - 1;
+        for (int slot = hash(most, least) & mask; keyState[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keyMost[slot] == most && keyLeast[slot] == least) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insertKey(long most, long least, long cents, long version, byte state) {
+        if ((keySlotsTaken + 1) * 4L > keyState.length * 3L) {
+            rehash();
+        }
+        int mask = keyState.length - 1;
+        int slot = hash(most, least) & mask;
+        while (keyState[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        keySlotsTaken++;
+        keyState[slot] = state;
+        keyMost[slot] = most;
+        keyLeast[slot] = least;
+        keyCents[slot] = cents;
+        keyVersion[slot] = version;
+    }
+
+    // Deleted products keep their slots, so the table only ever doubles
+    private void rehash() {
+        long[] oldMost = keyMost;
+        long[] oldLeast = keyLeast;
+        long[] oldCents = keyCents;
+        long[] oldVersion = keyVersion;
+        byte[] oldState = keyState;
+        int capacity = oldState.length * 2;
+        keyMost = new long[capacity];
+        keyLeast = new long[capacity];
+        keyCents = new long[capacity];
+        keyVersion = new long[capacity];
+        keyState = new byte[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldState.length; i++) {
+            if (oldState[i] != FREE) {
+                int slot = hash(oldMost[i], oldLeast[i]) & mask;
+                while (keyState[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keyState[slot] = oldState[i];
+                keyMost[slot] = oldMost[i];
+                keyLeast[slot] = oldLeast[i];
+                keyCents[slot] = oldCents[i];
+                keyVersion[slot] = oldVersion[i];
+            }
+        }
+    }
+
+    private static int hash(long most, long least) {
+        long h = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static final class Block {
+        private final long[] cents;
+        private final long[] most;
+        private final long[] least;
+        private int size;
+
+        Block() {
+            cents = new long[BLOCK_CAPACITY];
+            most = new long[BLOCK_CAPACITY];
+            least = new long[BLOCK_CAPACITY];
+        }
+
+        // Ids compare unsigned, which is how Postgres orders uuids
+        int compare(int i, long otherCents, long otherMost, long otherLeast) {
+            int result = Long.compare(cents[i], otherCents);
+            if (result == 0) {
+                result = Long.compareUnsigned(most[i], otherMost);
+            }
+            return result == 0 ? Long.compareUnsigned(least[i], otherLeast) : result;
+        }
+
+        // First entry priced at least otherCents
+        int lowerBound(long otherCents) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cents[mid] < otherCents) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // First entry not ordered before the given one
+        int lowerBound(long otherCents, long otherMost, long otherLeast) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(mid, otherCents, otherMost, otherLeast) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void insert(int i, long entryCents, long entryMost, long entryLeast) {
+            System.arraycopy(cents, i, cents, i + 1, size - i);
+            System.arraycopy(most, i, most, i + 1, size - i);
+            System.arraycopy(least, i, least, i + 1, size - i);
+            cents[i] = entryCents;
+            most[i] = entryMost;
+            least[i] = entryLeast;
+            size++;
+        }
+
+        void remove(int i) {
+            System.arraycopy(cents, i + 1, cents, i, size - i - 1);
+            System.arraycopy(most, i + 1, most, i, size - i - 1);
+            System.arraycopy(least, i + 1, least, i, size - i - 1);
+            size--;
+        }
+
+        Block splitUpperHalf() {
+            Block upper = new Block();
+            int half = size / 2;
+            upper.size = size - half;
+            System.arraycopy(cents, half, upper.cents, 0, upper.size);
+            System.arraycopy(most, half, upper.most, 0, upper.size);
+            System.arraycopy(least, half, upper.least, 0, upper.size);
+            size = half;
+            return upper;
+        }
+    }
+}
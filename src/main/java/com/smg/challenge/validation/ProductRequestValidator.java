@@ -0,0 +1,32 @@
+package com.smg.challenge.validation;
+
+import com.smg.challenge.dto.ProductRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Validates single product requests with the bean validation rules of {@link ProductRequest}
+ * and returns the messages instead of throwing, for endpoints that report per-item results.
+ */
+@Component
+public class ProductRequestValidator {
+
+    private final Validator validator;
+
+    public ProductRequestValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    public List<String> validate(ProductRequest request) {
+        if (request == null) {
+            return List.of("Product must not be null");
+        }
+        return validator.validate(request).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .toList();
+    }
+}
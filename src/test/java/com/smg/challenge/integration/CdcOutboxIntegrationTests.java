@@ -0,0 +1,150 @@
+package com.smg.challenge.integration;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.service.ProductService;
+import com.smg.challenge.service.publisher.CdcOutboxPublisher;
+import com.smg.challenge.service.publisher.PublishScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Publishes through logical replication against a Postgres started with wal_level=logical.
+ */
+@Slf4j
+@SpringBootTest(properties = {"scheduling.enabled: true", "outbox.publisher.mode: cdc"})
+@Testcontainers
+class CdcOutboxIntegrationTests {
+
+    @Container
+    static PostgreSQLContainer<?> postgresContainer;
+
+    @Container
+    static KafkaContainer kafkaContainer;
+
+    static {
+        postgresContainer = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("testdb")
+                .withUsername("testuser")
+                .withPassword("testpass")
+                .withCommand("postgres", "-c", "wal_level=logical");
+        postgresContainer.start();
+
+        kafkaContainer = new KafkaContainer(
+                DockerImageName.parse("confluentinc/cp-kafka:7.5.1")
+        );
+        kafkaContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.kafka.bootstrap-servers", kafkaContainer::getBootstrapServers);
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Test
+    void createdProducts_arePublishedFromTheWalWithoutUpdatingRows() {
+        assertThat(applicationContext.getBeansOfType(CdcOutboxPublisher.class)).hasSize(1);
+        assertThat(applicationContext.getBeansOfType(PublishScheduler.class)).isEmpty();
+
+        String lsnBeforeLastCreate;
+        try (KafkaConsumer<String, byte[]> consumer = createConsumer()) {
+            awaitSlot();
+            Set<String> expected = new HashSet<>();
+            lsnBeforeLastCreate = null;
+            for (int i = 0; i < 50; i++) {
+                lsnBeforeLastCreate = jdbcTemplate.queryForObject("SELECT pg_current_wal_lsn()::text", String.class);
+                Product product = new Product();
+                product.setName("Cdc " + i);
+                product.setPrice(BigDecimal.TEN);
+                expected.add(productService.createProduct(product).getId().toString());
+            }
+
+            Set<String> received = new HashSet<>();
+            long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            while (!received.containsAll(expected) && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, byte[]> consumerRecord : consumer.poll(Duration.ofMillis(100))) {
+                    received.add(consumerRecord.key());
+                }
+            }
+
+            assertThat(received).containsAll(expected);
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM product_event WHERE published = true", Long.class)).isZero();
+        }
+
+        // The slot position is the checkpoint; it moves past the last commit once its event was acknowledged
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        Boolean confirmed = false;
+        while (!Boolean.TRUE.equals(confirmed) && System.nanoTime() < deadline) {
+            confirmed = jdbcTemplate.queryForObject(
+                    "SELECT confirmed_flush_lsn > ?::pg_lsn FROM pg_replication_slots WHERE slot_name = 'product_event_outbox'",
+                    Boolean.class, lsnBeforeLastCreate);
+        }
+        assertThat(confirmed).isTrue();
+    }
+
+    private void awaitSlot() {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (System.nanoTime() < deadline) {
+            Boolean active = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_replication_slots WHERE slot_name = 'product_event_outbox' AND active)",
+                    Boolean.class);
+            if (Boolean.TRUE.equals(active)) {
+                return;
+            }
+        }
+        throw new AssertionError("Replication slot was not created");
+    }
+
+    private KafkaConsumer<String, byte[]> createConsumer() {
+        KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaContainer.getBootstrapServers(),
+                ConsumerConfig.GROUP_ID_CONFIG, "cdc-" + UUID.randomUUID(),
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest",
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class));
+        consumer.subscribe(List.of("products"));
+        while (consumer.assignment().isEmpty()) {
+            consumer.poll(Duration.ofMillis(100));
+        }
+        return consumer;
+    }
+}
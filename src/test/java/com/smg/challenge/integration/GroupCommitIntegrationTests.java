@@ -0,0 +1,118 @@
+package com.smg.challenge.integration;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.service.ProductService;
+import com.smg.challenge.service.impl.GroupCommitProductService;
+import com.smg.challenge.service.impl.ProductServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares single creates from many concurrent clients with and without group commit.
+ * Tune with -Dbenchmark.group-commit.requests and -Dbenchmark.group-commit.clients.
+ */
+@Slf4j
+@SpringBootTest(properties = {"scheduling.enabled: false", "product.group-commit.enabled: true",
+        "logging.level.com.smg.challenge: WARN"})
+@Testcontainers
+class GroupCommitIntegrationTests {
+    private static final int REQUESTS = Integer.getInteger("benchmark.group-commit.requests", 10_000);
+    private static final int CLIENTS = Integer.getInteger("benchmark.group-commit.clients", 128);
+
+    @Container
+    static PostgreSQLContainer<?> postgresContainer;
+
+    @Container
+    static KafkaContainer kafkaContainer;
+
+    static {
+        postgresContainer = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("testdb")
+                .withUsername("testuser")
+                .withPassword("testpass");
+        postgresContainer.start();
+
+        kafkaContainer = new KafkaContainer(
+                DockerImageName.parse("confluentinc/cp-kafka:7.5.1")
+        );
+        kafkaContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.kafka.bootstrap-servers", kafkaContainer::getBootstrapServers);
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductServiceImpl productServiceImpl;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void groupCommit_raisesThroughputForConcurrentClients() throws Exception {
+        assertThat(productService).isInstanceOf(GroupCommitProductService.class);
+
+        // Warm up both paths
+        createConcurrently(productServiceImpl, 500);
+        createConcurrently(productService, 500);
+
+        double direct = createConcurrently(productServiceImpl, REQUESTS);
+        long before = jdbcTemplate.queryForObject("SELECT count(*) FROM product_event", Long.class);
+        double grouped = createConcurrently(productService, REQUESTS);
+        long events = jdbcTemplate.queryForObject("SELECT count(*) FROM product_event", Long.class) - before;
+
+        log.warn("{} creates from {} clients: one transaction each {} req/s, group commit {} req/s ({}x)",
+                REQUESTS, CLIENTS, String.format("%.0f", direct), String.format("%.0f", grouped),
+                String.format("%.2f", grouped / direct));
+        assertThat(events).isEqualTo(REQUESTS);
+    }
+
+    private double createConcurrently(ProductService service, int requests) throws Exception {
+        List<Future<Product>> results = new ArrayList<>(requests);
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+            for (int i = 0; i < requests; i++) {
+                Product product = new Product();
+                product.setName("Group " + i);
+                product.setPrice(new BigDecimal("9.99"));
+                results.add(clients.submit(() -> service.createProduct(product)));
+            }
+            Set<UUID> ids = new HashSet<>();
+            for (Future<Product> result : results) {
+                ids.add(result.get().getId());
+            }
+            assertThat(ids).hasSize(requests);
+        }
+        return requests / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,109 @@
+package com.smg.challenge.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smg.challenge.model.Product;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares publishing throughput of the old setup (one partition, no key, default producer)
+ * with the keyed multi-partition setup and tuned producer from KafkaConfig, and the JSON
+ * payload with the compact binary one.
+ */
+@Slf4j
+class KafkaPublishThroughputTests {
+    private static final int RECORDS = 100_000;
+    private static final Map<String, Object> TUNED_PRODUCER = Map.of(
+            ProducerConfig.BATCH_SIZE_CONFIG, 65536,
+            ProducerConfig.LINGER_MS_CONFIG, 5,
+            ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4",
+            ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+            ProducerConfig.ACKS_CONFIG, "all");
+
+    private final ProductPayloadCodec payloadCodec = new ProductPayloadCodec(new ObjectMapper().findAndRegisterModules());
+    private final Product product = new Product(UUID.randomUUID(), "Throughput Product", new BigDecimal("19.99"), Instant.now(), 0L);
+
+    private static EmbeddedKafkaKraftBroker broker;
+
+    @BeforeAll
+    static void startBroker() {
+        broker = new EmbeddedKafkaKraftBroker(1, 1);
+        broker.afterPropertiesSet();
+        broker.addTopics(new NewTopic("products-single", 1, (short) 1), new NewTopic("products-keyed", 12, (short) 1));
+    }
+
+    @AfterAll
+    static void stopBroker() {
+        broker.destroy();
+    }
+
+    @Test
+    void keyedMultiPartitionPublishing_comparedToSinglePartition() throws Exception {
+        byte[] payload = payloadCodec.encode(product, PayloadFormat.JSON);
+
+        double single = publish("products-single", false, Map.of(), payload);
+        double keyed = publish("products-keyed", true, TUNED_PRODUCER, payload);
+
+        log.info("Single partition, unkeyed, default producer: {} records/s", String.format("%.0f", single));
+        log.info("12 partitions, keyed, tuned producer:        {} records/s", String.format("%.0f", keyed));
+
+        assertThat(single).isPositive();
+        assertThat(keyed).isPositive();
+    }
+
+    @Test
+    void binaryPayload_comparedToJsonPayload() throws Exception {
+        byte[] json = payloadCodec.encode(product, PayloadFormat.JSON);
+        byte[] binary = payloadCodec.encode(product, PayloadFormat.BINARY);
+
+        double jsonThroughput = publish("products-keyed", true, TUNED_PRODUCER, json);
+        double binaryThroughput = publish("products-keyed", true, TUNED_PRODUCER, binary);
+
+        log.info("JSON payload:   {} bytes/event, {} records/s", json.length, String.format("%.0f", jsonThroughput));
+        log.info("Binary payload: {} bytes/event, {} records/s", binary.length, String.format("%.0f", binaryThroughput));
+
+        assertThat(binary.length).isLessThan(json.length);
+    }
+
+    private double publish(String topic, boolean keyed, Map<String, Object> tuning, byte[] payload) throws Exception {
+        Map<String, Object> props = new HashMap<>(tuning);
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+
+        try (KafkaProducer<String, byte[]> producer = new KafkaProducer<>(props)) {
+            // Warm up metadata and connections before timing
+            producer.send(new ProducerRecord<>(topic, "warmup", payload)).get();
+
+            long start = System.nanoTime();
+            Future<?> last = null;
+            for (int i = 0; i < RECORDS; i++) {
+                String key = keyed ? UUID.randomUUID().toString() : null;
+                last = producer.send(new ProducerRecord<>(topic, key, payload));
+            }
+            producer.flush();
+            last.get();
+            return RECORDS / ((System.nanoTime() - start) / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.smg.challenge.integration;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.model.ProductEvent;
+import com.smg.challenge.repository.ProductEventRepository;
+import com.smg.challenge.service.ProductEventService;
+import com.smg.challenge.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs several outbox workers against the same database, the way several app
+ * replicas would, with the scheduled publisher disabled so the test owns all claims.
+ * The workers are threads of one context, so this shows that claims are exclusive;
+ * OutboxScalingTests measures throughput across separate instances.
+ */
+@SpringBootTest(properties = {"scheduling.enabled: false"})
+@Testcontainers
+class OutboxClaimIntegrationTests {
+
+    @Container
+    static PostgreSQLContainer<?> postgresContainer;
+
+    @Container
+    static KafkaContainer kafkaContainer;
+
+    static {
+        postgresContainer = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("testdb")
+                .withUsername("testuser")
+                .withPassword("testpass");
+        postgresContainer.start();
+
+        kafkaContainer = new KafkaContainer(
+                DockerImageName.parse("confluentinc/cp-kafka:7.5.1")
+        );
+        kafkaContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.kafka.bootstrap-servers", kafkaContainer::getBootstrapServers);
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductEventService productEventService;
+
+    @Autowired
+    private ProductEventRepository productEventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void concurrentWorkers_neverClaimTheSameEvent() throws Exception {
+        final int eventCount = 500;
+        final int workers = 4;
+        createProducts(eventCount);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<List<UUID>>> claims = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            String owner = "worker-" + w;
+            claims.add(executor.submit(() -> {
+                List<UUID> claimed = new ArrayList<>();
+                List<ProductEvent> batch;
+                while (!(batch = productEventService.claimUnpublished(owner, 20, Duration.ofMinutes(5))).isEmpty()) {
+                    batch.forEach(event -> claimed.add(event.getId()));
+                }
+                return claimed;
+            }));
+        }
+
+        List<UUID> all = new ArrayList<>();
+        for (Future<List<UUID>> claim : claims) {
+            List<UUID> claimed = claim.get();
+            assertThat(claimed).isNotEmpty();
+            all.addAll(claimed);
+        }
+        executor.shutdown();
+
+        Set<UUID> unique = new HashSet<>(all);
+        assertThat(all).hasSize(eventCount);
+        assertThat(unique).hasSize(eventCount);
+    }
+
+    @Test
+    void expiredLease_isReclaimedByAnotherWorker() throws Exception {
+        createProducts(5);
+
+        List<ProductEvent> first = productEventService.claimUnpublished("crashed-worker", 5, Duration.ZERO);
+        Thread.sleep(10);
+        List<ProductEvent> second = productEventService.claimUnpublished("healthy-worker", 5, Duration.ofMinutes(5));
+
+        assertThat(first).hasSize(5);
+        assertThat(second).extracting(ProductEvent::getId)
+                .containsExactlyInAnyOrderElementsOf(first.stream().map(ProductEvent::getId).toList());
+        assertThat(second).allMatch(event -> "healthy-worker".equals(event.getLeaseOwner()));
+        productEventService.markPublished(second.stream().map(ProductEvent::getId).toList());
+    }
+
+    @Test
+    void laterEventOfProduct_waitsWhileEarlierOneIsLeased() {
+        Product product = new Product();
+        product.setName("Outbox leased");
+        product.setPrice(BigDecimal.ONE);
+        Product created = productService.createProduct(product);
+        Product renamed = new Product();
+        renamed.setName("Outbox renamed");
+        renamed.setPrice(BigDecimal.ONE);
+        productService.updateProduct(created.getId(), renamed, created.getVersion());
+
+        List<ProductEvent> first = productEventService.claimUnpublished("worker-a", 1, Duration.ofMinutes(5));
+        List<ProductEvent> whileLeased = productEventService.claimUnpublished("worker-b", 10, Duration.ofMinutes(5));
+        productEventService.markPublished(first.stream().map(ProductEvent::getId).toList());
+        List<ProductEvent> afterPublish = productEventService.claimUnpublished("worker-b", 10, Duration.ofMinutes(5));
+        productEventService.markPublished(afterPublish.stream().map(ProductEvent::getId).toList());
+
+        assertThat(first).extracting(ProductEvent::getEventType).containsExactly("ProductCreated");
+        assertThat(whileLeased).isEmpty();
+        assertThat(afterPublish).extracting(ProductEvent::getEventType).containsExactly("ProductUpdated");
+    }
+
+    @Test
+    void laterEventOfProduct_isNotClaimedWhileEarlierClaimIsUncommitted() throws Exception {
+        Product product = new Product();
+        product.setName("Outbox interleaved");
+        product.setPrice(BigDecimal.ONE);
+        Product created = productService.createProduct(product);
+        Product renamed = new Product();
+        renamed.setName("Outbox interleaved renamed");
+        renamed.setPrice(BigDecimal.ONE);
+        productService.updateProduct(created.getId(), renamed, created.getVersion());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // worker-a has locked the first event but not yet committed its lease when worker-b claims
+            List<ProductEvent> first = transactionTemplate.execute(status -> {
+                List<ProductEvent> locked = productEventRepository.lockClaimable(Instant.now(), 1);
+                List<ProductEvent> whileUncommitted = join(executor.submit(
+                        () -> productEventService.claimUnpublished("worker-b", 10, Duration.ofMinutes(5))));
+                assertThat(whileUncommitted).isEmpty();
+                productEventRepository.lease(locked.stream().map(ProductEvent::getId).toList(), "worker-a",
+                        Instant.now().plus(Duration.ofMinutes(5)));
+                return locked;
+            });
+            List<ProductEvent> whileLeased = executor.submit(
+                    () -> productEventService.claimUnpublished("worker-b", 10, Duration.ofMinutes(5))).get();
+            productEventService.markPublished(first.stream().map(ProductEvent::getId).toList());
+            List<ProductEvent> afterPublish = productEventService.claimUnpublished("worker-b", 10, Duration.ofMinutes(5));
+            productEventService.markPublished(afterPublish.stream().map(ProductEvent::getId).toList());
+
+            assertThat(first).extracting(ProductEvent::getEventType).containsExactly("ProductCreated");
+            assertThat(whileLeased).isEmpty();
+            assertThat(afterPublish).extracting(ProductEvent::getEventType).containsExactly("ProductUpdated");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void createProducts(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setName("Outbox" + i);
+            product.setPrice(BigDecimal.ONE);
+            products.add(product);
+        }
+        productService.createProducts(products);
+    }
+}
@@ -0,0 +1,142 @@
+package com.smg.challenge.integration;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.service.ProductService;
+import com.smg.challenge.service.publisher.OutboxNotificationListener;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures commit-to-Kafka latency of single product creates with the notification
+ * listener stopped (polling only) and running.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "scheduling.enabled: true",
+        "outbox.notify.enabled: true",
+        "outbox.publisher.idle-backoff.max: 1500ms"
+})
+@Testcontainers
+class OutboxNotifyIntegrationTests {
+    private static final int SAMPLES = 30;
+
+    @Container
+    static PostgreSQLContainer<?> postgresContainer;
+
+    @Container
+    static KafkaContainer kafkaContainer;
+
+    static {
+        postgresContainer = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("testdb")
+                .withUsername("testuser")
+                .withPassword("testpass");
+        postgresContainer.start();
+
+        kafkaContainer = new KafkaContainer(
+                DockerImageName.parse("confluentinc/cp-kafka:7.5.1")
+        );
+        kafkaContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.kafka.bootstrap-servers", kafkaContainer::getBootstrapServers);
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OutboxNotificationListener notificationListener;
+
+    @Test
+    void notifications_reduceCommitToKafkaLatency() {
+        try (KafkaConsumer<String, byte[]> consumer = createConsumer()) {
+            notificationListener.stop();
+            long[] polling = measure(consumer);
+            notificationListener.start();
+            long[] notified = measure(consumer);
+
+            log.info("Commit-to-Kafka latency polling only: p50={} ms p99={} ms", percentile(polling, 50), percentile(polling, 99));
+            log.info("Commit-to-Kafka latency with notify:  p50={} ms p99={} ms", percentile(notified, 50), percentile(notified, 99));
+
+            assertThat(percentile(notified, 50)).isLessThan(percentile(polling, 50));
+        }
+    }
+
+    private long[] measure(KafkaConsumer<String, byte[]> consumer) {
+        long[] latencies = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            Product product = new Product();
+            product.setName("Latency" + i);
+            product.setPrice(BigDecimal.ONE);
+            Product created = productService.createProduct(product);
+            long committedAt = System.nanoTime();
+            awaitRecord(consumer, created.getId());
+            latencies[i] = (System.nanoTime() - committedAt) / 1_000_000;
+        }
+        return latencies;
+    }
+
+    private void awaitRecord(KafkaConsumer<String, byte[]> consumer, UUID productId) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        String id = productId.toString();
+        while (System.nanoTime() < deadline) {
+            for (ConsumerRecord<String, byte[]> consumerRecord : consumer.poll(Duration.ofMillis(5))) {
+                if (id.equals(consumerRecord.key())) {
+                    return;
+                }
+            }
+        }
+        throw new AssertionError("Event for product " + productId + " was not published in time");
+    }
+
+    private KafkaConsumer<String, byte[]> createConsumer() {
+        KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaContainer.getBootstrapServers(),
+                ConsumerConfig.GROUP_ID_CONFIG, "latency-" + UUID.randomUUID(),
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest",
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class));
+        consumer.subscribe(List.of("products"));
+        while (consumer.assignment().isEmpty()) {
+            consumer.poll(Duration.ofMillis(100));
+        }
+        return consumer;
+    }
+
+    private static long percentile(long[] values, int percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
@@ -0,0 +1,172 @@
+package com.smg.challenge.integration;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.service.ProductEventService;
+import com.smg.challenge.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Creates products at a steady rate while the Kafka broker is paused and resumed. Reports how
+ * many sends failed per product created during the outage, how many products reached the
+ * topic more than once and how long the outbox takes to drain once the broker is back. Tune with
+ * -Dbenchmark.outage.rate (creates per second) and -Dbenchmark.outage.seconds.
+ */
+@Slf4j
+@SpringBootTest(properties = {"scheduling.enabled: true", "product.cache.invalidation.enabled: false",
+        "logging.level.com.smg.challenge: WARN", "outbox.publisher.max-in-flight: 2000"})
+@Testcontainers
+class OutboxOutageTests {
+    private static final int RATE = Integer.getInteger("benchmark.outage.rate", 200);
+    private static final int OUTAGE_SECONDS = Integer.getInteger("benchmark.outage.seconds", 20);
+    private static final int MAX_IN_FLIGHT = 2000;
+
+    @Container
+    static PostgreSQLContainer<?> postgresContainer;
+
+    @Container
+    static KafkaContainer kafkaContainer;
+
+    static {
+        postgresContainer = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("testdb")
+                .withUsername("testuser")
+                .withPassword("testpass");
+        postgresContainer.start();
+
+        kafkaContainer = new KafkaContainer(
+                DockerImageName.parse("confluentinc/cp-kafka:7.5.1")
+        );
+        kafkaContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.kafka.bootstrap-servers", kafkaContainer::getBootstrapServers);
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductEventService productEventService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void brokerOutage_retriesWithBackoffAndRecoversWithoutDuplicateStorm() throws Exception {
+        try (KafkaConsumer<String, byte[]> consumer = createConsumer()) {
+            Set<String> created = new HashSet<>();
+            createAtRate(created, 2);
+
+            double failuresBefore = meterRegistry.get("outbox.kafka.send.failures").counter().count();
+            int createdBefore = created.size();
+            kafkaContainer.getDockerClient().pauseContainerCmd(kafkaContainer.getContainerId()).exec();
+            long resumedAt;
+            try {
+                createAtRate(created, OUTAGE_SECONDS);
+            } finally {
+                kafkaContainer.getDockerClient().unpauseContainerCmd(kafkaContainer.getContainerId()).exec();
+                resumedAt = System.nanoTime();
+            }
+            int createdDuringOutage = created.size() - createdBefore;
+            long backlogAtResume = productEventService.countUnpublished();
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(120).toNanos();
+            while (productEventService.countUnpublished() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            long recoveryMillis = (System.nanoTime() - resumedAt) / 1_000_000;
+            assertThat(productEventService.countUnpublished()).isZero();
+            double failures = meterRegistry.get("outbox.kafka.send.failures").counter().count() - failuresBefore;
+
+            Map<String, Integer> recordsPerProduct = new HashMap<>();
+            int emptyPolls = 0;
+            while (emptyPolls < 3) {
+                ConsumerRecords<String, byte[]> polled = consumer.poll(Duration.ofMillis(500));
+                emptyPolls = polled.isEmpty() ? emptyPolls + 1 : 0;
+                for (ConsumerRecord<String, byte[]> consumerRecord : polled) {
+                    if (created.contains(consumerRecord.key())) {
+                        recordsPerProduct.merge(consumerRecord.key(), 1, Integer::sum);
+                    }
+                }
+            }
+            long duplicates = recordsPerProduct.values().stream().mapToInt(records -> records - 1).sum();
+
+            log.warn("{} s outage at {} creates/s: {} products created during it, {} failed sends ({} per product), "
+                            + "{} duplicate records of {} products, backlog of {} drained {} ms after the broker was back "
+                            + "({} events/s), {} dead letters",
+                    OUTAGE_SECONDS, RATE, createdDuringOutage, (long) failures,
+                    String.format("%.2f", failures / Math.max(1, createdDuringOutage)),
+                    duplicates, created.size(), backlogAtResume, recoveryMillis,
+                    backlogAtResume * 1000 / Math.max(1, recoveryMillis), productEventService.countDeadLettered());
+            assertThat(recordsPerProduct.keySet()).isEqualTo(created);
+            // Only sends that were in flight when the broker stopped answering can reach the topic twice
+            assertThat(duplicates).isLessThanOrEqualTo(MAX_IN_FLIGHT);
+            // Backoff doubles from 1s, so a product is retried a handful of times, not once per poll
+            assertThat(failures / Math.max(1, createdDuringOutage)).isLessThan(Math.log(OUTAGE_SECONDS) / Math.log(2) + 2);
+            assertThat(productEventService.countDeadLettered()).isZero();
+            assertThat(recoveryMillis).isLessThan(Duration.ofSeconds(60).toMillis());
+        }
+    }
+
+    private void createAtRate(Set<String> created, int seconds) {
+        long intervalNanos = 1_000_000_000L / RATE;
+        long next = System.nanoTime();
+        for (int i = 0; i < RATE * seconds; i++) {
+            LockSupport.parkNanos(next - System.nanoTime());
+            next += intervalNanos;
+            Product product = new Product();
+            product.setName("Outage " + created.size());
+            product.setPrice(BigDecimal.TEN);
+            created.add(productService.createProduct(product).getId().toString());
+        }
+    }
+
+    private KafkaConsumer<String, byte[]> createConsumer() {
+        KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaContainer.getBootstrapServers(),
+                ConsumerConfig.GROUP_ID_CONFIG, "outage-" + UUID.randomUUID(),
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest",
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class));
+        consumer.subscribe(List.of("products"));
+        while (consumer.assignment().isEmpty()) {
+            consumer.poll(Duration.ofMillis(100));
+        }
+        return consumer;
+    }
+}
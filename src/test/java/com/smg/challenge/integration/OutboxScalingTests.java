@@ -0,0 +1,166 @@
+package com.smg.challenge.integration;
+
+import com.smg.challenge.ChallengeApplication;
+import com.smg.challenge.model.Product;
+import com.smg.challenge.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts one and then several publisher instances, each its own Spring application context,
+ * against the same Postgres and Kafka, the way replicas of the service would run. A separate
+ * instance without a publisher writes the events. Reports how many events per second the
+ * outbox drains at 1 and at N instances and how the work was split between them.
+ * <p>
+ * Every publisher is capped at a small outbox.publisher.batch-size.max, so a single instance
+ * and not the database or the broker is the bottleneck, which is the situation replicas are
+ * added for. Tune with -Dbenchmark.scaling.events and -Dbenchmark.scaling.instances.
+ */
+@Slf4j
+@Testcontainers
+class OutboxScalingTests {
+    private static final int EVENTS = Integer.getInteger("benchmark.scaling.events", 20_000);
+    private static final int INSTANCES = Integer.getInteger("benchmark.scaling.instances", 3);
+    private static final int CREATE_CHUNK = 10_000;
+
+    @Container
+    static PostgreSQLContainer<?> postgresContainer;
+
+    @Container
+    static KafkaContainer kafkaContainer;
+
+    static {
+        postgresContainer = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("testdb")
+                .withUsername("testuser")
+                .withPassword("testpass");
+        postgresContainer.start();
+
+        kafkaContainer = new KafkaContainer(
+                DockerImageName.parse("confluentinc/cp-kafka:7.5.1")
+        );
+        kafkaContainer.start();
+    }
+
+    @Test
+    void publishThroughput_scalesWithInstances() {
+        try (ConfigurableApplicationContext writer = start("writer", false)) {
+            ProductService productService = writer.getBean(ProductService.class);
+            JdbcTemplate jdbcTemplate = writer.getBean(JdbcTemplate.class);
+
+            double single = drain(productService, jdbcTemplate, 1);
+            double scaled = drain(productService, jdbcTemplate, INSTANCES);
+
+            log.info("Outbox drain: 1 instance {} events/s, {} instances {} events/s ({}x)",
+                    String.format("%.0f", single), INSTANCES, String.format("%.0f", scaled),
+                    String.format("%.2f", scaled / single));
+            // Well below linear, as every instance shares the one database and broker
+            assertThat(scaled).isGreaterThan(single * Math.min(1.5, INSTANCES * 0.5));
+        }
+    }
+
+    private double drain(ProductService productService, JdbcTemplate jdbcTemplate, int instances) {
+        List<ConfigurableApplicationContext> publishers = new ArrayList<>(instances);
+        // Every round gets its own worker ids, so the lease owner of a published event tells which
+        // instance of which round sent it
+        String[] workers = new String[instances];
+        try {
+            for (int i = 0; i < instances; i++) {
+                workers[i] = "publisher-" + instances + "-" + i;
+                publishers.add(start(workers[i], true));
+            }
+
+            long start = System.nanoTime();
+            for (int created = 0; created < EVENTS; created += CREATE_CHUNK) {
+                productService.createProducts(newProducts(Math.min(CREATE_CHUNK, EVENTS - created)));
+            }
+            long deadline = start + Duration.ofMinutes(5).toNanos();
+            double[] shares;
+            do {
+                shares = new double[instances];
+                for (int i = 0; i < instances; i++) {
+                    shares[i] = published(jdbcTemplate, workers[i]);
+                }
+                if (Arrays.stream(shares).sum() >= EVENTS) {
+                    break;
+                }
+                sleep();
+            } while (System.nanoTime() < deadline);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            assertThat(Arrays.stream(shares).sum()).isGreaterThanOrEqualTo(EVENTS);
+            log.info("{} instance(s) published {} events in {} s, per instance {}", instances, EVENTS,
+                    String.format("%.2f", seconds), Arrays.toString(Arrays.stream(shares).mapToLong(share -> (long) share).toArray()));
+            if (instances > 1) {
+                // SKIP LOCKED hands every instance its own rows, so each one takes part
+                assertThat(shares).doesNotContain(0.0);
+            }
+            return EVENTS / seconds;
+        } finally {
+            publishers.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String name, boolean publisher) {
+        return new SpringApplicationBuilder(ChallengeApplication.class)
+                .properties(
+                        "spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+                        "spring.datasource.username=" + postgresContainer.getUsername(),
+                        "spring.datasource.password=" + postgresContainer.getPassword(),
+                        "spring.datasource.driver-class-name=org.postgresql.Driver",
+                        "spring.datasource.hikari.maximum-pool-size=5",
+                        "spring.kafka.bootstrap-servers=" + kafkaContainer.getBootstrapServers(),
+                        "spring.main.web-application-type=none",
+                        "scheduling.enabled=" + publisher,
+                        "outbox.worker-id=" + name,
+                        "outbox.publisher.batch-size.max=50",
+                        "outbox.publisher.idle-backoff.max=50ms",
+                        "outbox.partition.maintenance.enabled=false",
+                        "product.cache.invalidation.enabled=false",
+                        "logging.level.com.smg.challenge=WARN")
+                .run();
+    }
+
+    private static double published(JdbcTemplate jdbcTemplate, String worker) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM product_event WHERE published = true AND lease_owner = ?", Long.class, worker);
+        return count != null ? count : 0;
+    }
+
+    private static List<Product> newProducts(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setName("Scaling " + UUID.randomUUID());
+            product.setPrice(BigDecimal.ONE);
+            products.add(product);
+        }
+        return products;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.smg.challenge.integration;
+
+import com.smg.challenge.ChallengeApplication;
+import com.smg.challenge.model.Product;
+import com.smg.challenge.service.ProductCatalogService;
+import com.smg.challenge.service.ProductEventService;
+import com.smg.challenge.service.ProductService;
+import com.smg.challenge.service.catalog.LocalProductCatalog;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.RecordsToDelete;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Restarts the application with the local product catalog enabled, once without a snapshot, so
+ * the catalog is loaded from the database, and once with the snapshot the first run wrote plus a
+ * tail of changes on the topic. Reports the time from starting the context, and from creating
+ * the catalog, until the catalog is ready. Tune with -Dbenchmark.catalog.products and
+ * -Dbenchmark.catalog.tail. Also checks that a snapshot behind the records the topic still
+ * retains is not used.
+ */
+@Slf4j
+@Testcontainers
+class ProductCatalogRestartTests {
+    private static final int PRODUCTS = Integer.getInteger("benchmark.catalog.products", 200_000);
+    private static final int TAIL = Integer.getInteger("benchmark.catalog.tail", 1_000);
+
+    @Container
+    static PostgreSQLContainer<?> postgresContainer;
+
+    @Container
+    static KafkaContainer kafkaContainer;
+
+    static {
+        postgresContainer = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("testdb")
+                .withUsername("testuser")
+                .withPassword("testpass");
+        postgresContainer.start();
+
+        kafkaContainer = new KafkaContainer(
+                DockerImageName.parse("confluentinc/cp-kafka:7.5.1")
+        );
+        kafkaContainer.start();
+    }
+
+    @TempDir
+    Path snapshotDirectory;
+
+    private record Startup(long contextMillis, long catalogMillis) {
+    }
+
+    @Test
+    void restart_withSnapshotIsReadyFasterThanFromDatabase() throws Exception {
+        Path snapshot = snapshotDirectory.resolve("product-catalog.snapshot");
+        try (ConfigurableApplicationContext context = start(snapshot)) {
+            context.getBean(JdbcTemplate.class).update("""
+                    INSERT INTO products (id, name, price, created_at)
+                    SELECT gen_random_uuid(), 'Catalog ' || g, 9.99, now()
+                    FROM generate_series(1, ?) g""", PRODUCTS);
+        }
+        // Written by the load over the then empty table
+        Files.deleteIfExists(snapshot);
+
+        Startup cold;
+        List<Product> tail = new ArrayList<>(TAIL);
+        long coldStart = System.nanoTime();
+        try (ConfigurableApplicationContext context = start(snapshot)) {
+            cold = awaitReady(context, coldStart);
+            ProductService productService = context.getBean(ProductService.class);
+            for (int i = 0; i < TAIL; i++) {
+                Product product = new Product();
+                product.setName("Tail " + i);
+                product.setPrice(BigDecimal.TEN);
+                tail.add(productService.createProduct(product));
+            }
+            awaitOutboxDrained(context.getBean(ProductEventService.class));
+        }
+        assertThat(snapshot).exists();
+
+        Startup warm;
+        long warmStart = System.nanoTime();
+        try (ConfigurableApplicationContext context = start(snapshot)) {
+            warm = awaitReady(context, warmStart);
+            ProductCatalogService catalog = context.getBean(ProductCatalogService.class);
+            UUID bulkId = context.getBean(JdbcTemplate.class)
+                    .queryForObject("SELECT id FROM products WHERE name = 'Catalog 1'", UUID.class);
+            assertThat(catalog.findProduct(bulkId)).map(Product::getName).contains("Catalog 1");
+            for (Product product : tail) {
+                assertThat(catalog.findProduct(product.getId())).map(Product::getName).contains(product.getName());
+            }
+        }
+
+        log.warn("Catalog of {} products, {} changes in the tail. Ready after context start / catalog creation: "
+                        + "from the database {} ms / {} ms, from the snapshot {} ms / {} ms",
+                PRODUCTS, TAIL, cold.contextMillis(), cold.catalogMillis(), warm.contextMillis(), warm.catalogMillis());
+        assertThat(warm.catalogMillis()).isLessThan(cold.catalogMillis());
+    }
+
+    @Test
+    void restart_withSnapshotBehindTheLogStartLoadsFromDatabase() throws Exception {
+        Path snapshot = snapshotDirectory.resolve("retention.snapshot");
+        List<Product> tail = new ArrayList<>();
+        try (ConfigurableApplicationContext context = start(snapshot)) {
+            awaitReady(context, System.nanoTime());
+            ProductService productService = context.getBean(ProductService.class);
+            for (int i = 0; i < 10; i++) {
+                Product product = new Product();
+                product.setName("Retained " + i);
+                product.setPrice(BigDecimal.ONE);
+                tail.add(productService.createProduct(product));
+            }
+            awaitOutboxDrained(context.getBean(ProductEventService.class));
+        }
+        assertThat(snapshot).exists();
+        // What retention does to the tail the snapshot does not hold
+        deleteAllRecords("products");
+
+        try (ConfigurableApplicationContext context = start(snapshot)) {
+            awaitReady(context, System.nanoTime());
+            ProductCatalogService catalog = context.getBean(ProductCatalogService.class);
+            for (Product product : tail) {
+                assertThat(catalog.findProduct(product.getId())).map(Product::getName).contains(product.getName());
+            }
+        }
+    }
+
+    private static void deleteAllRecords(String topic) throws Exception {
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaContainer.getBootstrapServers()))) {
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            admin.describeTopics(List.of(topic)).allTopicNames().get().get(topic).partitions()
+                    .forEach(partition -> latest.put(new TopicPartition(topic, partition.partition()), OffsetSpec.latest()));
+            Map<TopicPartition, RecordsToDelete> toDelete = new HashMap<>();
+            admin.listOffsets(latest).all().get()
+                    .forEach((partition, offset) -> toDelete.put(partition, RecordsToDelete.beforeOffset(offset.offset())));
+            admin.deleteRecords(toDelete).all().get();
+        }
+    }
+
+    private ConfigurableApplicationContext start(Path snapshot) {
+        // Command line arguments, so they win over application.properties
+        return new SpringApplicationBuilder(ChallengeApplication.class).run(
+                "--spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+                "--spring.datasource.username=" + postgresContainer.getUsername(),
+                "--spring.datasource.password=" + postgresContainer.getPassword(),
+                "--spring.datasource.driver-class-name=org.postgresql.Driver",
+                "--spring.kafka.bootstrap-servers=" + kafkaContainer.getBootstrapServers(),
+                "--server.port=0",
+                "--scheduling.enabled=true",
+                "--logging.level.com.smg.challenge=WARN",
+                "--product.catalog.enabled=true",
+                "--product.catalog.snapshot-path=" + snapshot,
+                "--product.catalog.checkpoint-interval=1h",
+                // Leaves the tail created by the run on the topic only
+                "--product.catalog.checkpoint-on-shutdown=false");
+    }
+
+    private Startup awaitReady(ConfigurableApplicationContext context, long startNanos) throws InterruptedException {
+        LocalProductCatalog catalog = context.getBean(LocalProductCatalog.class);
+        long deadline = System.nanoTime() + Duration.ofSeconds(120).toNanos();
+        while (!catalog.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(catalog.isReady()).isTrue();
+        return new Startup((System.nanoTime() - startNanos) / 1_000_000, catalog.millisToReady());
+    }
+
+    private void awaitOutboxDrained(ProductEventService productEventService) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+        while (productEventService.countUnpublished() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(productEventService.countUnpublished()).isZero();
+    }
+}
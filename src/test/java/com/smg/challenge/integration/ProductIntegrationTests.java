@@ -1,15 +1,37 @@
 package com.smg.challenge.integration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smg.challenge.dto.ProductImportError;
+import com.smg.challenge.dto.ProductImportFormat;
+import com.smg.challenge.dto.ProductImportReport;
+import com.smg.challenge.dto.ProductPriceHit;
+import com.smg.challenge.dto.ProductPriceRangeResponse;
+import com.smg.challenge.dto.ProductResponse;
+import com.smg.challenge.dto.ProductSearchHit;
+import com.smg.challenge.exception.ProductConflictException;
+import com.smg.challenge.exception.ProductNotFoundException;
 import com.smg.challenge.model.Product;
 import com.smg.challenge.model.ProductEvent;
 import com.smg.challenge.repository.ProductEventRepository;
 import com.smg.challenge.repository.ProductRepository;
 import com.smg.challenge.service.ProductEventService;
+import com.smg.challenge.service.ProductExportService;
+import com.smg.challenge.service.ProductImportService;
+import com.smg.challenge.service.ProductPriceService;
+import com.smg.challenge.service.ProductSearchService;
 import com.smg.challenge.service.impl.ProductServiceImpl;
+import com.smg.challenge.service.publisher.OutboxPartitionMaintenance;
+import com.smg.challenge.service.search.ProductPriceIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -19,11 +41,32 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+@Slf4j
 @SpringBootTest(properties = {"scheduling.enabled: true"})
 @Testcontainers
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -74,7 +117,31 @@ class ProductIntegrationTests {
     private ProductEventRepository productEventRepository;
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OutboxPartitionMaintenance partitionMaintenance;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductPriceService productPriceService;
 
     @Test
     void createProduct_savesToDbAndSendsKafka() {
@@ -95,4 +162,464 @@ class ProductIntegrationTests {
         assertThat(event.getAggregateId()).isEqualTo(saved.getId());
     }
 
+    @Test
+    void updateAndDeleteProduct_checkVersionAndWriteEvents() {
+        Product created = productService.createProduct(newProduct("Versioned"));
+        assertThat(created.getVersion()).isZero();
+
+        Product updated = productService.updateProduct(created.getId(), newProduct("Repriced"), 0L);
+        assertThat(updated.getVersion()).isEqualTo(1L);
+        assertThat(productService.getProduct(created.getId()).getName()).isEqualTo("Repriced");
+
+        assertThatThrownBy(() -> productService.updateProduct(created.getId(), newProduct("Stale"), 0L))
+                .isInstanceOf(ProductConflictException.class);
+        assertThatThrownBy(() -> productService.deleteProduct(created.getId(), 0L))
+                .isInstanceOf(ProductConflictException.class);
+
+        productService.deleteProduct(created.getId(), 1L);
+        assertThat(productRepository.findById(created.getId())).isEmpty();
+        assertThatThrownBy(() -> productService.getProduct(created.getId()))
+                .isInstanceOf(ProductNotFoundException.class);
+
+        List<String> eventTypes = jdbcTemplate.queryForList(
+                "SELECT event_type FROM product_event WHERE aggregate_id = ? ORDER BY created_at", String.class, created.getId());
+        assertThat(eventTypes).containsExactly("ProductCreated", "ProductUpdated", "ProductDeleted");
+    }
+
+    @Test
+    void searchProducts_followsCreatesUpdatesAndDeletesFromTheTopic() throws Exception {
+        Product created = productService.createProduct(newProduct("Quasar Lantern"));
+        awaitSearch("quasar lan", List.of(new ProductSearchHit(created.getId(), "Quasar Lantern")));
+
+        Product renamed = productService.updateProduct(created.getId(), newProduct("Quasar Torch"), created.getVersion());
+        awaitSearch("quasar t", List.of(new ProductSearchHit(created.getId(), "Quasar Torch")));
+        assertThat(productSearchService.searchProducts("lantern", 10)).isEmpty();
+
+        productService.deleteProduct(created.getId(), renamed.getVersion());
+        awaitSearch("quasar", List.of());
+    }
+
+    @Test
+    void findByPriceRange_followsCreatesUpdatesAndDeletesFromTheTopic() throws Exception {
+        BigDecimal price = new BigDecimal("987654.31");
+        BigDecimal newPrice = new BigDecimal("987654.32");
+        Product product = newProduct("Orrery");
+        product.setPrice(price);
+        Product created = productService.createProduct(product);
+        awaitPriceRange(price, List.of(new ProductPriceHit(created.getId(), price)));
+
+        Product change = newProduct("Orrery");
+        change.setPrice(newPrice);
+        Product repriced = productService.updateProduct(created.getId(), change, created.getVersion());
+        awaitPriceRange(newPrice, List.of(new ProductPriceHit(created.getId(), newPrice)));
+        assertThat(productPriceService.findByPriceRange(price, price, 10).total()).isZero();
+
+        productService.deleteProduct(created.getId(), repriced.getVersion());
+        awaitPriceRange(newPrice, List.of());
+    }
+
+    /**
+     * Answers the same range and statistics queries from a ProductPriceIndex and with SQL over the
+     * products table, checks they agree and reports both latencies. The table size can be raised
+     * with -Dbenchmark.price.rows=5000000.
+     */
+    @Test
+    void priceIndex_answersRangeAndStatsLikeSql() {
+        int rows = Integer.getInteger("benchmark.price.rows", 200_000);
+        jdbcTemplate.update("""
+                INSERT INTO products (id, name, price, created_at)
+                SELECT gen_random_uuid(), 'Priced ' || g, round((1 + random() * 999)::numeric, 2), now()
+                FROM generate_series(1, ?) g""", rows);
+        jdbcTemplate.execute("ANALYZE products");
+
+        ProductPriceIndex index = new ProductPriceIndex();
+        long loadStart = System.nanoTime();
+        jdbcTemplate.query("SELECT id, price FROM products",
+                resultSet -> {
+                    index.put(resultSet.getObject(1, UUID.class), ProductPriceIndex.toCents(resultSet.getBigDecimal(2)), 0);
+                });
+        long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+
+        long minCents = 50_000;
+        long maxCents = 50_099;
+        List<ProductPriceHit> indexHits = new ArrayList<>();
+        index.forEachInRange(minCents, maxCents, 50, (most, least, cents) ->
+                indexHits.add(new ProductPriceHit(new UUID(most, least), ProductPriceIndex.fromCents(cents))));
+        List<ProductPriceHit> sqlHits = jdbcTemplate.query(
+                "SELECT id, price FROM products WHERE price BETWEEN ? AND ? ORDER BY price, id LIMIT 50",
+                (resultSet, rowNum) -> new ProductPriceHit(resultSet.getObject(1, UUID.class), resultSet.getBigDecimal(2)),
+                ProductPriceIndex.fromCents(minCents), ProductPriceIndex.fromCents(maxCents));
+        assertThat(indexHits).isEqualTo(sqlHits);
+        assertThat((long) index.countInRange(minCents, maxCents)).isEqualTo(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM products WHERE price BETWEEN ? AND ?", Long.class,
+                ProductPriceIndex.fromCents(minCents), ProductPriceIndex.fromCents(maxCents)));
+
+        String statsSql = """
+                SELECT count(*), min(price), max(price), round(avg(price), 2),
+                       percentile_disc(0.5) WITHIN GROUP (ORDER BY price),
+                       percentile_disc(0.99) WITHIN GROUP (ORDER BY price)
+                FROM products""";
+        ProductPriceIndex.Stats stats = index.stats(50, 99);
+        Map<String, Object> sqlStats = jdbcTemplate.queryForMap(statsSql);
+        assertThat(List.copyOf(sqlStats.values())).containsExactly((long) stats.count(),
+                ProductPriceIndex.fromCents(stats.minCents()), ProductPriceIndex.fromCents(stats.maxCents()),
+                ProductPriceIndex.fromCents(stats.averageCents()),
+                ProductPriceIndex.fromCents(stats.percentileCents()[0]), ProductPriceIndex.fromCents(stats.percentileCents()[1]));
+
+        long indexRange = timeMicros(() -> {
+            index.countInRange(minCents, maxCents);
+            index.forEachInRange(minCents, maxCents, 50, (most, least, cents) -> { });
+        });
+        long sqlRange = timeMicros(() -> {
+            jdbcTemplate.queryForObject("SELECT count(*) FROM products WHERE price BETWEEN 500.00 AND 500.99", Long.class);
+            jdbcTemplate.queryForList("SELECT id, price FROM products WHERE price BETWEEN 500.00 AND 500.99 ORDER BY price, id LIMIT 50");
+        });
+        long indexStats = timeMicros(() -> index.stats(50, 99));
+        long sqlStatsMicros = timeMicros(() -> jdbcTemplate.queryForMap(statsSql));
+        log.info("Prices of {} products: index loaded in {} ms, about {} MB. Range count + first page: index {} us, SQL {} us. "
+                        + "Stats: index {} us, SQL {} us",
+                index.size(), loadMillis, index.estimatedBytes() / (1024 * 1024), indexRange, sqlRange, indexStats, sqlStatsMicros);
+    }
+
+    @Test
+    void createProducts_batchIsFasterThanSingleCreates() {
+        final int count = 2000;
+
+        long singleStart = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            productService.createProduct(newProduct("Single" + i));
+        }
+        long singleMillis = (System.nanoTime() - singleStart) / 1_000_000;
+
+        List<Product> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            batch.add(newProduct("Batch" + i));
+        }
+        long batchStart = System.nanoTime();
+        List<Product> created = productService.createProducts(batch);
+        long batchMillis = (System.nanoTime() - batchStart) / 1_000_000;
+
+        log.info("Created {} products: single calls took {} ms, batch took {} ms (speedup {}x)",
+                count, singleMillis, batchMillis, String.format("%.1f", (double) singleMillis / Math.max(1, batchMillis)));
+
+        assertThat(created).hasSize(count).allMatch(product -> product.getId() != null);
+        assertThat(batchMillis).isLessThan(singleMillis);
+    }
+
+    @Test
+    void partitionMaintenance_removesOnlyFullyPublishedExpiredPartitions() {
+        LocalDate publishedDay = jdbcTemplate.queryForObject("SELECT CURRENT_DATE - 30", LocalDate.class);
+        LocalDate pendingDay = publishedDay.plusDays(1);
+        insertEventInOwnPartition(publishedDay, true);
+        insertEventInOwnPartition(pendingDay, false);
+
+        partitionMaintenance.maintainPartitions();
+
+        assertThat(partitionExists(publishedDay)).isFalse();
+        assertThat(partitionExists(pendingDay)).isTrue();
+        assertThat(partitionExists(LocalDate.now().plusDays(3))).isTrue();
+    }
+
+    @Test
+    void productEvents_ofDaysWithoutPartitionLandInTheDefaultPartition() {
+        LocalDate expiredDay = jdbcTemplate.queryForObject("SELECT CURRENT_DATE - 50", LocalDate.class);
+        LocalDate farDay = expiredDay.plusDays(150);
+        insertEvent(expiredDay, true);
+        insertEvent(farDay, false);
+        assertThat(partitionExists(expiredDay)).isFalse();
+        assertThat(partitionExists(farDay)).isFalse();
+
+        partitionMaintenance.maintainPartitions();
+
+        List<LocalDate> left = jdbcTemplate.queryForList(
+                "SELECT created_at::date FROM product_event_default ORDER BY created_at", LocalDate.class);
+        jdbcTemplate.update("DELETE FROM product_event_default");
+        assertThat(left).containsExactly(farDay);
+    }
+
+    @Test
+    void partitionMaintenance_skipsWhileAnotherInstanceHoldsTheLock() {
+        LocalDate publishedDay = jdbcTemplate.queryForObject("SELECT CURRENT_DATE - 40", LocalDate.class);
+        insertEventInOwnPartition(publishedDay, true);
+
+        // Holds the lock on its own connection, the way a maintenance run on another replica would
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            JdbcTemplate otherInstance = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            otherInstance.queryForObject("SELECT pg_advisory_lock(hashtext('product_event_partition_maintenance'))", Object.class);
+            try {
+                partitionMaintenance.maintainPartitions();
+            } finally {
+                otherInstance.queryForObject("SELECT pg_advisory_unlock(hashtext('product_event_partition_maintenance'))", Boolean.class);
+            }
+            return null;
+        });
+        assertThat(partitionExists(publishedDay)).isTrue();
+
+        partitionMaintenance.maintainPartitions();
+        assertThat(partitionExists(publishedDay)).isFalse();
+    }
+
+    @Test
+    void getProduct_isCachedAndEvictedByProductEvents() throws Exception {
+        // Saved without an outbox event, so only the event sent below can evict it
+        Product product = newProduct("Cached");
+        product.setCreatedAt(Instant.now());
+        Product saved = productRepository.save(product);
+
+        assertThat(productService.getProduct(saved.getId()).getName()).isEqualTo("Cached");
+        assertThat(cacheManager.getCache(ProductServiceImpl.PRODUCT_CACHE).get(saved.getId())).isNotNull();
+
+        kafkaTemplate.send(new ProducerRecord<>("products", saved.getId().toString(), new byte[0])).get();
+
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (cacheManager.getCache(ProductServiceImpl.PRODUCT_CACHE).get(saved.getId()) != null
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(cacheManager.getCache(ProductServiceImpl.PRODUCT_CACHE).get(saved.getId())).isNull();
+    }
+
+    @Test
+    void getProduct_hotWorkingSetLatency() {
+        List<Product> hotSet = productService.createProducts(
+                IntStream.range(0, 100).mapToObj(i -> newProduct("Hot" + i)).toList());
+        hotSet.forEach(product -> productService.getProduct(product.getId()));
+
+        long[] latencies = new long[20_000];
+        for (int i = 0; i < latencies.length; i++) {
+            long start = System.nanoTime();
+            productService.getProduct(hotSet.get(i % hotSet.size()).getId());
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        log.info("Cached getProduct latency: p50={} us p99={} us",
+                latencies[latencies.length / 2] / 1000, latencies[(int) (latencies.length * 0.99)] / 1000);
+    }
+
+    @Test
+    void listProducts_walksPagesInKeyOrderWithoutDuplicates() {
+        productService.createProducts(IntStream.range(0, 25).mapToObj(i -> newProduct("Page" + i)).toList());
+
+        List<Product> seen = new ArrayList<>();
+        List<Product> page = productService.listProducts(null, null, 1000);
+        while (!page.isEmpty()) {
+            seen.addAll(page);
+            Product last = page.getLast();
+            page = productService.listProducts(last.getCreatedAt(), last.getId(), 1000);
+        }
+
+        assertThat(seen).extracting(Product::getId).doesNotHaveDuplicates();
+        assertThat(seen.size()).isEqualTo(productRepository.count());
+        for (int i = 1; i < seen.size(); i++) {
+            assertThat(seen.get(i).getCreatedAt()).isAfterOrEqualTo(seen.get(i - 1).getCreatedAt());
+        }
+    }
+
+    /**
+     * Compares a first and a deep page with keyset and OFFSET pagination. The table size can be
+     * raised with -Dbenchmark.pagination.rows=10000000.
+     */
+    @Test
+    void listProducts_deepKeysetPageCostsTheSameAsFirstPage() {
+        int rows = Integer.getInteger("benchmark.pagination.rows", 200_000);
+        jdbcTemplate.update("""
+                INSERT INTO products (id, name, price, created_at)
+                SELECT gen_random_uuid(), 'Bulk ' || g, 9.99, TIMESTAMP '2000-01-01' + g * INTERVAL '1 millisecond'
+                FROM generate_series(1, ?) g""", rows);
+        jdbcTemplate.execute("ANALYZE products");
+
+        Map<String, Object> deep = jdbcTemplate.queryForMap(
+                "SELECT created_at, id FROM products ORDER BY created_at, id OFFSET ? LIMIT 1", rows - 100);
+        Instant deepCreatedAt = ((Timestamp) deep.get("created_at")).toInstant();
+        UUID deepId = (UUID) deep.get("id");
+
+        long firstKeyset = timeMillis(() -> productService.listProducts(null, null, 50));
+        long deepKeyset = timeMillis(() -> productService.listProducts(deepCreatedAt, deepId, 50));
+        long deepOffset = timeMillis(() -> jdbcTemplate.queryForList(
+                "SELECT * FROM products ORDER BY created_at, id OFFSET ? LIMIT 50", rows - 100));
+        log.info("Paging {} rows: first keyset page {} ms, deep keyset page {} ms, deep OFFSET page {} ms",
+                rows, firstKeyset, deepKeyset, deepOffset);
+
+        String plan = String.join("\n", jdbcTemplate.queryForList("""
+                EXPLAIN SELECT * FROM products WHERE (created_at, id) > (TIMESTAMP '2000-01-01', '00000000-0000-0000-0000-000000000000'::uuid)
+                ORDER BY created_at, id LIMIT 50""", String.class));
+        assertThat(plan).contains("idx_products_created_at_id");
+    }
+
+    /**
+     * Imports a generated NDJSON stream that never exists in memory as a whole. Run with e.g.
+     * -Dbenchmark.import.rows=5000000 -DargLine=-Xmx256m to check heap stays bounded.
+     */
+    @Test
+    void importProducts_streamsLargeNdjsonInChunks() {
+        long rows = Long.getLong("benchmark.import.rows", 100_000L);
+
+        long start = System.nanoTime();
+        ProductImportReport report = productImportService.importProducts(new GeneratedNdjsonStream(rows), ProductImportFormat.NDJSON);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        Runtime runtime = Runtime.getRuntime();
+        log.info("Imported {} rows in {} s ({} rows/s), heap used {} MB of max {} MB", report.created(),
+                String.format("%.1f", seconds), String.format("%.0f", rows / seconds),
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024), runtime.maxMemory() / (1024 * 1024));
+        assertThat(report.created()).isEqualTo(rows);
+        assertThat(report.rejected()).isZero();
+    }
+
+    @Test
+    void importProducts_rejectsOverlongLinesAndOnlyTheFailingRecordsOfAChunk() {
+        String ndjson = String.join("\n",
+                "{\"name\":\"Import ok 1\",\"price\":1.50}",
+                "{\"name\":\"Import overflow\",\"price\":1e30}",
+                "{\"name\":\"" + "x".repeat(70_000) + "\",\"price\":1}",
+                "{\"name\":\"Import ok 2\",\"price\":2.50}");
+
+        ProductImportReport report = productImportService.importProducts(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ProductImportFormat.NDJSON);
+
+        assertThat(report.created()).isEqualTo(2);
+        assertThat(report.rejected()).isEqualTo(2);
+        assertThat(report.errors()).extracting(ProductImportError::fromLine).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(productRepository.findAll()).extracting(Product::getName).contains("Import ok 1", "Import ok 2");
+    }
+
+    /**
+     * Exports the whole table through the JDBC cursor. Run with e.g.
+     * -Dbenchmark.export.rows=10000000 -DargLine=-Xmx256m to check heap stays flat.
+     */
+    @Test
+    void exportProducts_streamsWholeCatalogAsGzipNdjson() throws IOException {
+        int rows = Integer.getInteger("benchmark.export.rows", 200_000);
+        jdbcTemplate.update("""
+                INSERT INTO products (id, name, price, created_at)
+                SELECT gen_random_uuid(), 'Export ' || g, 4.99, now()
+                FROM generate_series(1, ?) g""", rows);
+        long expected = jdbcTemplate.queryForObject("SELECT count(*) FROM products", Long.class);
+
+        Path file = Files.createTempFile("products", ".ndjson.gz");
+        try {
+            long start = System.nanoTime();
+            long exported;
+            try (OutputStream output = Files.newOutputStream(file)) {
+                exported = productExportService.exportProducts(output);
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            Runtime runtime = Runtime.getRuntime();
+            log.info("Exported {} rows ({} KB gzip) in {} s ({} rows/s), heap used {} MB of max {} MB", exported,
+                    Files.size(file) / 1024, String.format("%.1f", seconds), String.format("%.0f", exported / seconds),
+                    (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024), runtime.maxMemory() / (1024 * 1024));
+            assertThat(exported).isEqualTo(expected);
+
+            long lines = 0;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                ProductResponse first = objectMapper.readValue(line, ProductResponse.class);
+                assertThat(first.id()).isNotNull();
+                assertThat(first.createdAt()).isNotNull();
+                for (; line != null; line = reader.readLine()) {
+                    lines++;
+                }
+            }
+            assertThat(lines).isEqualTo(expected);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long timeMillis(Runnable action) {
+        action.run(); // warm up
+        long start = System.nanoTime();
+        action.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    // Average of 20 runs after 5 warm up runs
+    private static long timeMicros(Runnable action) {
+        for (int i = 0; i < 5; i++) {
+            action.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            action.run();
+        }
+        return (System.nanoTime() - start) / 20_000;
+    }
+
+    private void insertEventInOwnPartition(LocalDate day, boolean published) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(day) + " PARTITION OF product_event"
+                + " FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+        insertEvent(day, published);
+    }
+
+    private void insertEvent(LocalDate day, boolean published) {
+        // Leased far into the future so the running publisher leaves the pending event alone
+        jdbcTemplate.update("""
+                INSERT INTO product_event (id, aggregate_type, aggregate_id, event_type, payload, published,
+                                           created_at, lease_owner, lease_expires_at)
+                VALUES (gen_random_uuid(), 'Product', gen_random_uuid(), 'ProductCreated', '{}', ?,
+                        ?::timestamp + interval '1 hour', 'test', now() + interval '1 day')""",
+                published, day.toString());
+    }
+
+    private boolean partitionExists(LocalDate day) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partitionName(day)));
+    }
+
+    private static String partitionName(LocalDate day) {
+        return "product_event_p" + day.format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    private void awaitSearch(String query, List<ProductSearchHit> expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!productSearchService.searchProducts(query, 10).equals(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(productSearchService.searchProducts(query, 10)).isEqualTo(expected);
+    }
+
+    private void awaitPriceRange(BigDecimal price, List<ProductPriceHit> expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!productPriceService.findByPriceRange(price, price, 10).items().equals(expected)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        ProductPriceRangeResponse response = productPriceService.findByPriceRange(price, price, 10);
+        assertThat(response.items()).isEqualTo(expected);
+        assertThat(response.total()).isEqualTo(expected.size());
+    }
+
+    private Product newProduct(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(BigDecimal.valueOf(10.50));
+        return product;
+    }
+
+    private static class GeneratedNdjsonStream extends InputStream {
+        private final long rows;
+        private long row;
+        private byte[] line = new byte[0];
+        private int position;
+
+        GeneratedNdjsonStream(long rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read() {
+            if (position == line.length) {
+                if (row == rows) {
+                    return -1;
+                }
+                row++;
+                line = ("{\"name\":\"Imported " + row + "\",\"price\":" + (row % 1000 + 1) + ".99}\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return line[position++];
+        }
+    }
+
 }
@@ -0,0 +1,207 @@
+package com.smg.challenge.integration;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import com.smg.challenge.service.ProductEventService;
+import com.smg.challenge.service.ProductService;
+import com.smg.challenge.service.publisher.PublishScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reprices a small catalog from many concurrent clients while the publisher runs, once without
+ * and once with outbox coalescing, and reports how many Kafka records each logical change
+ * (create or update) cost. Tune with -Dbenchmark.repricing.products, -Dbenchmark.repricing.updates
+ * and -Dbenchmark.repricing.clients.
+ */
+@Slf4j
+@SpringBootTest(properties = {"scheduling.enabled: true", "product.cache.invalidation.enabled: false",
+        "logging.level.com.smg.challenge: WARN"})
+@Testcontainers
+class RepricingStormTests {
+    private static final int PRODUCTS = Integer.getInteger("benchmark.repricing.products", 64);
+    private static final int UPDATES = Integer.getInteger("benchmark.repricing.updates", 20_000);
+    private static final int CLIENTS = Integer.getInteger("benchmark.repricing.clients", 32);
+
+    @Container
+    static PostgreSQLContainer<?> postgresContainer;
+
+    @Container
+    static KafkaContainer kafkaContainer;
+
+    static {
+        postgresContainer = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("testdb")
+                .withUsername("testuser")
+                .withPassword("testpass");
+        postgresContainer.start();
+
+        kafkaContainer = new KafkaContainer(
+                DockerImageName.parse("confluentinc/cp-kafka:7.5.1")
+        );
+        kafkaContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.kafka.bootstrap-servers", kafkaContainer::getBootstrapServers);
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductEventService productEventService;
+
+    @Autowired
+    private PublishScheduler publishScheduler;
+
+    @Autowired
+    private ProductPayloadCodec payloadCodec;
+
+    @Value("${kafka.topic.products.format:JSON}")
+    private PayloadFormat topicFormat;
+
+    @Test
+    void repricingStorm_coalescingSendsFewerRecordsPerChange() throws Exception {
+        double uncoalesced = recordsPerChange(false);
+        double coalesced = recordsPerChange(true);
+
+        log.warn("{} updates of {} products from {} clients: {} records per change without coalescing, {} with",
+                UPDATES, PRODUCTS, CLIENTS, String.format("%.3f", uncoalesced), String.format("%.3f", coalesced));
+        // At least once: without coalescing every change is sent, possibly more than once
+        assertThat(uncoalesced).isGreaterThanOrEqualTo(1.0);
+        assertThat(coalesced).isLessThanOrEqualTo(uncoalesced);
+    }
+
+    private double recordsPerChange(boolean coalesce) throws Exception {
+        ReflectionTestUtils.setField(publishScheduler, "coalesce", coalesce);
+        try (KafkaConsumer<String, byte[]> consumer = createConsumer()) {
+            List<Product> products = new ArrayList<>(PRODUCTS);
+            for (int i = 0; i < PRODUCTS; i++) {
+                Product product = new Product();
+                product.setName("Storm " + i);
+                product.setPrice(BigDecimal.TEN);
+                products.add(productService.createProduct(product));
+            }
+            Map<String, BigDecimal> finalPrices = reprice(products);
+
+            awaitOutboxDrained();
+            Map<String, BigDecimal> lastSentPrices = new HashMap<>();
+            int records = 0;
+            int emptyPolls = 0;
+            while (emptyPolls < 3) {
+                ConsumerRecords<String, byte[]> polled = consumer.poll(Duration.ofMillis(500));
+                emptyPolls = polled.isEmpty() ? emptyPolls + 1 : 0;
+                for (ConsumerRecord<String, byte[]> consumerRecord : polled) {
+                    if (finalPrices.containsKey(consumerRecord.key())) {
+                        records++;
+                        lastSentPrices.put(consumerRecord.key(), payloadCodec.decode(consumerRecord.value(), topicFormat).getPrice());
+                    }
+                }
+            }
+
+            // Coalescing must never lose the latest state of a product
+            assertThat(lastSentPrices).hasSameSizeAs(finalPrices);
+            finalPrices.forEach((id, price) -> assertThat(lastSentPrices.get(id)).isEqualByComparingTo(price));
+            return (double) records / (PRODUCTS + UPDATES);
+        }
+    }
+
+    /**
+     * Every client owns its own products, so updates never conflict and each one is a logical change.
+     */
+    private Map<String, BigDecimal> reprice(List<Product> products) throws Exception {
+        Map<String, BigDecimal> finalPrices = new ConcurrentHashMap<>();
+        AtomicInteger sequence = new AtomicInteger();
+        try (ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+            List<Future<?>> results = new ArrayList<>(CLIENTS);
+            for (int client = 0; client < CLIENTS; client++) {
+                List<Product> owned = new ArrayList<>();
+                for (int i = client; i < products.size(); i += CLIENTS) {
+                    owned.add(products.get(i));
+                }
+                if (owned.isEmpty()) {
+                    continue;
+                }
+                results.add(clients.submit(() -> {
+                    for (int n = sequence.getAndIncrement(); n < UPDATES; n = sequence.getAndIncrement()) {
+                        int index = n % owned.size();
+                        Product current = owned.get(index);
+                        Product change = new Product();
+                        change.setName(current.getName());
+                        change.setPrice(BigDecimal.valueOf(1000 + n, 2));
+                        Product updated = productService.updateProduct(current.getId(), change, current.getVersion());
+                        owned.set(index, updated);
+                        finalPrices.put(updated.getId().toString(), updated.getPrice());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+        products.forEach(product -> finalPrices.putIfAbsent(product.getId().toString(), product.getPrice()));
+        return finalPrices;
+    }
+
+    private void awaitOutboxDrained() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+        while (productEventService.countUnpublished() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(productEventService.countUnpublished()).isZero();
+    }
+
+    private KafkaConsumer<String, byte[]> createConsumer() {
+        KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaContainer.getBootstrapServers(),
+                ConsumerConfig.GROUP_ID_CONFIG, "repricing-" + UUID.randomUUID(),
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest",
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class));
+        consumer.subscribe(List.of("products"));
+        while (consumer.assignment().isEmpty()) {
+            consumer.poll(Duration.ofMillis(100));
+        }
+        return consumer;
+    }
+}
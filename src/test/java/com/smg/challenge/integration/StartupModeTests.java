@@ -0,0 +1,189 @@
+package com.smg.challenge.integration;
+
+import com.smg.challenge.ChallengeApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application in its own JVM in each startup mode and reports the time until it
+ * accepts connections and the latency of the first and second POST /v1/product:
+ * <ul>
+ *     <li>lazy: everything lazily initialized, product.startup.eager-create-path=false</li>
+ *     <li>eager create path: the default configuration</li>
+ *     <li>AOT + CDS: the application built by the aot-cds profile, only when target/cds holds it</li>
+ * </ul>
+ * Build the last one first with ./mvnw -Paot-cds -DskipTests package. Tune with
+ * -Dbenchmark.startup.runs and -Dbenchmark.startup.cds-directory.
+ */
+@Slf4j
+@Testcontainers
+class StartupModeTests {
+    private static final int RUNS = Integer.getInteger("benchmark.startup.runs", 3);
+    private static final Path CDS_DIRECTORY = Path.of(System.getProperty("benchmark.startup.cds-directory", "target/cds"));
+
+    @Container
+    static PostgreSQLContainer<?> postgresContainer;
+
+    @Container
+    static KafkaContainer kafkaContainer;
+
+    static {
+        postgresContainer = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("testdb")
+                .withUsername("testuser")
+                .withPassword("testpass");
+        postgresContainer.start();
+
+        kafkaContainer = new KafkaContainer(
+                DockerImageName.parse("confluentinc/cp-kafka:7.5.1")
+        );
+        kafkaContainer.start();
+    }
+
+    @TempDir
+    Path logDirectory;
+
+    private record Mode(String name, List<String> jvmArguments, List<String> arguments) {
+    }
+
+    private record Startup(long startupMillis, double firstRequestMillis, double secondRequestMillis) {
+    }
+
+    @Test
+    void startup_reportsTimeToFirstRequestPerMode() throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> classpath = List.of("-cp", System.getProperty("java.class.path"), ChallengeApplication.class.getName());
+        List<Mode> modes = new ArrayList<>();
+        modes.add(new Mode("lazy", classpath, List.of("--product.startup.eager-create-path=false")));
+        modes.add(new Mode("eager create path", classpath, List.of()));
+        Path archive = CDS_DIRECTORY.resolve("application.jsa");
+        Path jar = findJar(CDS_DIRECTORY);
+        if (Files.exists(archive) && jar != null) {
+            modes.add(new Mode("AOT + CDS", List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true",
+                    "-jar", jar.toString()), List.of()));
+        } else {
+            log.info("No AOT + CDS build in {}, build it with ./mvnw -Paot-cds -DskipTests package", CDS_DIRECTORY);
+        }
+
+        // Applies the migrations and fills the page cache, so that no mode pays for them
+        start(java, modes.getFirst(), "warmup");
+
+        List<String> report = new ArrayList<>();
+        for (Mode mode : modes) {
+            Startup[] runs = new Startup[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                runs[run] = start(java, mode, mode.name().replace(' ', '-') + "-" + run);
+            }
+            report.add(String.format("%-18s startup %5d ms, first request %7.1f ms, second request %5.1f ms",
+                    mode.name(),
+                    Arrays.stream(runs).mapToLong(Startup::startupMillis).sorted().toArray()[RUNS / 2],
+                    Arrays.stream(runs).mapToDouble(Startup::firstRequestMillis).sorted().toArray()[RUNS / 2],
+                    Arrays.stream(runs).mapToDouble(Startup::secondRequestMillis).sorted().toArray()[RUNS / 2]));
+        }
+        log.info("Median of {} runs per mode:\n{}", RUNS, String.join("\n", report));
+    }
+
+    private Startup start(String java, Mode mode, String runName) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(mode.jvmArguments());
+        command.addAll(List.of(
+                "--spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+                "--spring.datasource.username=" + postgresContainer.getUsername(),
+                "--spring.datasource.password=" + postgresContainer.getPassword(),
+                "--spring.kafka.bootstrap-servers=" + kafkaContainer.getBootstrapServers(),
+                "--server.port=" + port,
+                "--logging.level.com.smg.challenge=WARN"));
+        command.addAll(mode.arguments());
+        Path output = logDirectory.resolve(runName + ".log");
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(output.toFile()).start();
+        try {
+            awaitListening(process, port, output);
+            long startupMillis = (System.nanoTime() - start) / 1_000_000;
+
+            URI uri = URI.create("http://localhost:" + port + "/v1/product");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            double firstRequestMillis = timeCreate(client, uri, runName + " first", output);
+            double secondRequestMillis = timeCreate(client, uri, runName + " second", output);
+            return new Startup(startupMillis, firstRequestMillis, secondRequestMillis);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    // Tomcat only binds its port once every non-lazy bean is created
+    private void awaitListening(Process process, int port, Path output) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(120).toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new AssertionError("Application exited:\n" + Files.readString(output));
+            }
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", port), 100);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(5);
+            }
+        }
+        throw new AssertionError("Application did not listen on port " + port + ":\n" + Files.readString(output));
+    }
+
+    private double timeCreate(HttpClient client, URI uri, String name, Path output) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofMinutes(1))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Startup " + name + "\",\"price\":9.99}"))
+                .build();
+        long sent = System.nanoTime();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        double millis = (System.nanoTime() - sent) / 1_000_000.0;
+        assertThat(status).as("Create failed:\n%s", Files.readString(output)).isEqualTo(200);
+        return millis;
+    }
+
+    private static Path findJar(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar")).findFirst().orElse(null);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.smg.challenge.integration;
+
+import com.smg.challenge.ChallengeApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the same POST /v1/product load against the application started with platform threads
+ * and with virtual threads, and logs throughput and latency percentiles for both. Tune with
+ * -Dbenchmark.load.requests and -Dbenchmark.load.concurrency; add -Djdk.tracePinnedThreads=short
+ * to the argLine to have pinned virtual threads reported.
+ */
+@Slf4j
+@Testcontainers
+class ThreadingModeLoadTests {
+    private static final int REQUESTS = Integer.getInteger("benchmark.load.requests", 20_000);
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.load.concurrency", 1_000);
+
+    @Container
+    static PostgreSQLContainer<?> postgresContainer;
+
+    @Container
+    static KafkaContainer kafkaContainer;
+
+    static {
+        postgresContainer = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("testdb")
+                .withUsername("testuser")
+                .withPassword("testpass");
+        postgresContainer.start();
+
+        kafkaContainer = new KafkaContainer(
+                DockerImageName.parse("confluentinc/cp-kafka:7.5.1")
+        );
+        kafkaContainer.start();
+    }
+
+    @Test
+    void createProduct_platformThreadsComparedToVirtualThreads() throws Exception {
+        LoadResult platform = runLoad(false);
+        LoadResult virtual = runLoad(true);
+
+        log.info("{} requests at concurrency {}", REQUESTS, CONCURRENCY);
+        log.info("Platform threads: {}", platform);
+        log.info("Virtual threads:  {}", virtual);
+
+        assertThat(platform.failures()).isZero();
+        assertThat(virtual.failures()).isZero();
+    }
+
+    private LoadResult runLoad(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ChallengeApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+                        "spring.datasource.username=" + postgresContainer.getUsername(),
+                        "spring.datasource.password=" + postgresContainer.getPassword(),
+                        "spring.kafka.bootstrap-servers=" + kafkaContainer.getBootstrapServers(),
+                        "logging.level.com.smg.challenge=WARN")
+                .run()) {
+            URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/v1/product");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            // Warm up JIT, connection pool and Kafka producer before measuring
+            send(client, uri, -1);
+            for (int i = 0; i < 500; i++) {
+                send(client, uri, i);
+            }
+
+            long[] latencies = new long[REQUESTS];
+            AtomicInteger failures = new AtomicInteger();
+            Semaphore permits = new Semaphore(CONCURRENCY);
+            long start = System.nanoTime();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < REQUESTS; i++) {
+                    int request = i;
+                    permits.acquire();
+                    clients.submit(() -> {
+                        try {
+                            long sent = System.nanoTime();
+                            if (send(client, uri, request) != 200) {
+                                failures.incrementAndGet();
+                            }
+                            latencies[request] = System.nanoTime() - sent;
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            Arrays.sort(latencies);
+            return new LoadResult(REQUESTS / seconds, percentileMillis(latencies, 0.50),
+                    percentileMillis(latencies, 0.99), failures.get());
+        }
+    }
+
+    private static int send(HttpClient client, URI uri, int request) throws Exception {
+        HttpRequest httpRequest = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofMinutes(1))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Load " + request + "\",\"price\":9.99}"))
+                .build();
+        return client.send(httpRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private record LoadResult(double requestsPerSecond, double p50Millis, double p99Millis, int failures) {
+        @Override
+        public String toString() {
+            return String.format("%.0f req/s, p50 %.1f ms, p99 %.1f ms, %d failures",
+                    requestsPerSecond, p50Millis, p99Millis, failures);
+        }
+    }
+}
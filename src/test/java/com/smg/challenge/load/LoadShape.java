@@ -0,0 +1,72 @@
+package com.smg.challenge.load;
+
+import java.time.Duration;
+
+/**
+ * Target request rate over the course of a load run. Selected with {@code -Dload.shape}
+ * (constant, ramp or burst) and the {@code load.*} properties read in {@link #fromSystemProperties()}.
+ */
+public sealed interface LoadShape {
+
+    Duration duration();
+
+    /**
+     * Requests per second that should be started at the given time into the run.
+     */
+    double rateAt(Duration elapsed);
+
+    String describe();
+
+    record Constant(double rate, Duration duration) implements LoadShape {
+        @Override
+        public double rateAt(Duration elapsed) {
+            return rate;
+        }
+
+        @Override
+        public String describe() {
+            return String.format("constant %.0f req/s for %ds", rate, duration.toSeconds());
+        }
+    }
+
+    record Ramp(double fromRate, double toRate, Duration duration) implements LoadShape {
+        @Override
+        public double rateAt(Duration elapsed) {
+            double progress = Math.min(1.0, (double) elapsed.toNanos() / duration.toNanos());
+            return fromRate + (toRate - fromRate) * progress;
+        }
+
+        @Override
+        public String describe() {
+            return String.format("ramp %.0f to %.0f req/s over %ds", fromRate, toRate, duration.toSeconds());
+        }
+    }
+
+    record Burst(double baseRate, double burstRate, Duration period, Duration burstLength, Duration duration) implements LoadShape {
+        @Override
+        public double rateAt(Duration elapsed) {
+            return elapsed.toNanos() % period.toNanos() < burstLength.toNanos() ? burstRate : baseRate;
+        }
+
+        @Override
+        public String describe() {
+            return String.format("burst %.0f req/s with %.0f req/s for %dms every %ds over %ds",
+                    baseRate, burstRate, burstLength.toMillis(), period.toSeconds(), duration.toSeconds());
+        }
+    }
+
+    static LoadShape fromSystemProperties() {
+        Duration duration = Duration.ofSeconds(Long.getLong("load.duration-seconds", 20));
+        double rate = Double.parseDouble(System.getProperty("load.rate", "200"));
+        return switch (System.getProperty("load.shape", "constant")) {
+            case "constant" -> new Constant(rate, duration);
+            case "ramp" -> new Ramp(Double.parseDouble(System.getProperty("load.ramp.from", "10")), rate, duration);
+            case "burst" -> new Burst(rate,
+                    Double.parseDouble(System.getProperty("load.burst.rate", String.valueOf(rate * 10))),
+                    Duration.ofSeconds(Long.getLong("load.burst.period-seconds", 5)),
+                    Duration.ofMillis(Long.getLong("load.burst.length-millis", 500)),
+                    duration);
+            default -> throw new IllegalArgumentException("Unknown load.shape " + System.getProperty("load.shape"));
+        };
+    }
+}
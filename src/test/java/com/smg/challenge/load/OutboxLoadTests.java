@@ -0,0 +1,249 @@
+package com.smg.challenge.load;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives product creates at the rate given by {@link LoadShape} and measures what the system
+ * sustains end to end:
+ * <ul>
+ *     <li>create latency from the intended start of a request, so queueing behind a slow
+ *     system is counted (no coordinated omission)</li>
+ *     <li>commit latency, the time spent inside the createProduct transaction</li>
+ *     <li>commit-to-Kafka lag, from commit until the event is read back from the products topic</li>
+ *     <li>outbox backlog, sampled once per second</li>
+ * </ul>
+ * Reports are written to {@code target/load-reports/<shape>-<timestamp>/}: one HdrHistogram
+ * percentile distribution ({@code .hgrm}, values in ms) per latency, {@code backlog.csv} and
+ * {@code summary.txt}.
+ */
+@Slf4j
+@SpringBootTest(properties = {"scheduling.enabled: true", "logging.level.com.smg.challenge: WARN"})
+@Testcontainers
+class OutboxLoadTests {
+    private static final Path REPORT_ROOT = Path.of("target", "load-reports");
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(Long.getLong("load.drain-timeout-seconds", 120));
+
+    @Container
+    static PostgreSQLContainer<?> postgresContainer;
+
+    @Container
+    static KafkaContainer kafkaContainer;
+
+    static {
+        postgresContainer = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("testdb")
+                .withUsername("testuser")
+                .withPassword("testpass");
+        postgresContainer.start();
+
+        kafkaContainer = new KafkaContainer(
+                DockerImageName.parse("confluentinc/cp-kafka:7.5.1")
+        );
+        kafkaContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresContainer::getUsername);
+        registry.add("spring.datasource.password", postgresContainer::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.kafka.bootstrap-servers", kafkaContainer::getBootstrapServers);
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void createProducts_underConfiguredLoadShape() throws Exception {
+        LoadShape shape = LoadShape.fromSystemProperties();
+        Histogram createLatency = new ConcurrentHistogram(3);
+        Histogram commitLatency = new ConcurrentHistogram(3);
+        Histogram kafkaLag = new ConcurrentHistogram(3);
+        Map<String, Long> committedAt = new ConcurrentHashMap<>();
+        Map<String, Long> receivedAt = new ConcurrentHashMap<>();
+        List<long[]> backlog = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicBoolean consuming = new AtomicBoolean(true);
+        CountDownLatch assigned = new CountDownLatch(1);
+
+        log.warn("Starting load run: {}", shape.describe());
+        Thread consumerThread = Thread.ofPlatform().name("load-consumer").start(() -> consume(consuming, receivedAt, assigned));
+        assertThat(assigned.await(30, TimeUnit.SECONDS)).as("load consumer partition assignment").isTrue();
+
+        long start = System.nanoTime();
+        int sent = 0;
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            long intendedStart = start;
+            long nextBacklogSample = start;
+            long end = start + shape.duration().toNanos();
+            while (intendedStart < end) {
+                long now = System.nanoTime();
+                if (now >= nextBacklogSample) {
+                    backlog.add(new long[]{(now - start) / 1_000_000, countBacklog()});
+                    nextBacklogSample += TimeUnit.SECONDS.toNanos(1);
+                }
+                if (intendedStart > now) {
+                    LockSupport.parkNanos(intendedStart - now);
+                }
+                long scheduled = intendedStart;
+                int request = sent++;
+                requests.submit(() -> create(request, scheduled, createLatency, commitLatency, committedAt, failures));
+                double rate = Math.max(shape.rateAt(Duration.ofNanos(intendedStart - start)), 0.1);
+                intendedStart += (long) (1_000_000_000L / rate);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        // Keep sampling the backlog until every committed event made it to Kafka
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (!receivedAt.keySet().containsAll(committedAt.keySet()) && System.nanoTime() < drainDeadline) {
+            backlog.add(new long[]{(System.nanoTime() - start) / 1_000_000, countBacklog()});
+            Thread.sleep(1000);
+        }
+        consuming.set(false);
+        consumerThread.join();
+
+        committedAt.forEach((id, committed) -> {
+            Long received = receivedAt.get(id);
+            if (received != null) {
+                kafkaLag.recordValue(Math.max(0, received - committed) / 1_000);
+            }
+        });
+
+        String summary = String.format("""
+                        shape:            %s
+                        requests:         %d sent, %d committed, %d failed
+                        throughput:       %.1f committed req/s
+                        create latency:   p50 %.1f ms, p99 %.1f ms, max %.1f ms
+                        commit latency:   p50 %.1f ms, p99 %.1f ms, max %.1f ms
+                        kafka lag:        p50 %.1f ms, p99 %.1f ms, max %.1f ms (%d of %d events seen)
+                        max backlog:      %d events
+                        """,
+                shape.describe(), sent, committedAt.size(), failures.get(), committedAt.size() / seconds,
+                millis(createLatency, 50), millis(createLatency, 99), createLatency.getMaxValue() / 1000.0,
+                millis(commitLatency, 50), millis(commitLatency, 99), commitLatency.getMaxValue() / 1000.0,
+                millis(kafkaLag, 50), millis(kafkaLag, 99), kafkaLag.getMaxValue() / 1000.0,
+                kafkaLag.getTotalCount(), committedAt.size(),
+                backlog.stream().mapToLong(sample -> sample[1]).max().orElse(0));
+        Path reportDir = writeReports(shape, summary, createLatency, commitLatency, kafkaLag, backlog);
+        log.warn("Load run finished, reports in {}\n{}", reportDir.toAbsolutePath(), summary);
+
+        assertThat(failures.get()).isZero();
+        assertThat(kafkaLag.getTotalCount()).isEqualTo(committedAt.size());
+    }
+
+    private void create(int request, long scheduled, Histogram createLatency, Histogram commitLatency,
+                        Map<String, Long> committedAt, AtomicInteger failures) {
+        Product product = new Product();
+        product.setName("Load " + request);
+        product.setPrice(new BigDecimal("9.99"));
+        try {
+            long begin = System.nanoTime();
+            Product created = productService.createProduct(product);
+            long committed = System.nanoTime();
+            committedAt.put(created.getId().toString(), committed);
+            commitLatency.recordValue((committed - begin) / 1_000);
+            createLatency.recordValue((committed - scheduled) / 1_000);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            log.warn("Create {} failed: {}", request, e.getMessage());
+        }
+    }
+
+    private void consume(AtomicBoolean consuming, Map<String, Long> receivedAt, CountDownLatch assigned) {
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaContainer.getBootstrapServers(),
+                ConsumerConfig.GROUP_ID_CONFIG, "load-" + UUID.randomUUID(),
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest",
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class))) {
+            consumer.subscribe(List.of("products"));
+            while (consuming.get()) {
+                for (ConsumerRecord<String, byte[]> consumerRecord : consumer.poll(Duration.ofMillis(10))) {
+                    receivedAt.putIfAbsent(consumerRecord.key(), System.nanoTime());
+                }
+                if (!consumer.assignment().isEmpty()) {
+                    assigned.countDown();
+                }
+            }
+        }
+    }
+
+    private long countBacklog() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM product_event WHERE published = false", Long.class);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static Path writeReports(LoadShape shape, String summary, Histogram createLatency, Histogram commitLatency,
+                                     Histogram kafkaLag, List<long[]> backlog) throws IOException {
+        String run = shape.getClass().getSimpleName().toLowerCase() + "-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path dir = Files.createDirectories(REPORT_ROOT.resolve(run));
+        writeHistogram(dir.resolve("create-latency.hgrm"), createLatency);
+        writeHistogram(dir.resolve("commit-latency.hgrm"), commitLatency);
+        writeHistogram(dir.resolve("kafka-lag.hgrm"), kafkaLag);
+
+        StringBuilder csv = new StringBuilder("elapsed_ms,unpublished_events\n");
+        backlog.forEach(sample -> csv.append(sample[0]).append(',').append(sample[1]).append('\n'));
+        Files.writeString(dir.resolve("backlog.csv"), csv);
+        Files.writeString(dir.resolve("summary.txt"), summary);
+        return dir;
+    }
+
+    // Values are recorded in microseconds and written in milliseconds
+    private static void writeHistogram(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+}
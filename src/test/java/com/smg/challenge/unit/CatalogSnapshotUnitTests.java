@@ -0,0 +1,84 @@
+package com.smg.challenge.unit;
+
+import com.smg.challenge.model.Product;
+import com.smg.challenge.service.catalog.CatalogSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSnapshotUnitTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void write_mapsProductsAndOffsets() throws Exception {
+        Path path = directory.resolve("catalog.snapshot");
+        List<Product> products = products(1000);
+
+        CatalogSnapshot snapshot = CatalogSnapshot.write(path, Map.of(0, 42L, 3, 7L), sink -> {
+            for (Product product : products) {
+                sink.add(product);
+            }
+        });
+
+        assertEquals(1000, snapshot.size());
+        assertEquals(Map.of(0, 42L, 3, 7L), snapshot.offsets());
+        for (Product product : products) {
+            assertEquals(product, snapshot.find(product.getId()));
+        }
+        assertNull(snapshot.find(UUID.randomUUID()));
+        assertEquals(1000, CatalogSnapshot.open(path).size());
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(path), files.toList());
+        }
+    }
+
+    @Test
+    void write_copiesRecordsOfPreviousSnapshot() throws Exception {
+        Path path = directory.resolve("catalog.snapshot");
+        List<Product> products = products(100);
+        CatalogSnapshot first = CatalogSnapshot.write(path, Map.of(), sink -> {
+            for (Product product : products) {
+                sink.add(product);
+            }
+        });
+        UUID dropped = products.getFirst().getId();
+
+        CatalogSnapshot second = CatalogSnapshot.write(path, Map.of(0, 1L), sink -> first.forEachRecord((most, least, record) -> {
+            if (!dropped.equals(new UUID(most, least))) {
+                sink.copy(first, record);
+            }
+        }));
+
+        assertEquals(99, second.size());
+        assertNull(second.find(dropped));
+        assertEquals(products.getLast(), second.find(products.getLast().getId()));
+        // The replaced file stays readable through its mapping
+        assertEquals(products.getFirst(), first.find(dropped));
+    }
+
+    @Test
+    void open_returnsNullWithoutSnapshot() throws Exception {
+        assertNull(CatalogSnapshot.open(directory.resolve("missing.snapshot")));
+    }
+
+    private List<Product> products(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(new Product(UUID.randomUUID(), "Ünïcödé Product " + i, new BigDecimal("19.99").add(BigDecimal.valueOf(i)),
+                    Instant.ofEpochSecond(1723161600 + i, 123456789), i % 2 == 0 ? null : (long) i));
+        }
+        return products;
+    }
+}
@@ -0,0 +1,99 @@
+package com.smg.challenge.unit;
+
+import com.smg.challenge.service.publisher.PgOutputDecoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PgOutputDecoderUnitTests {
+
+    private final PgOutputDecoder decoder = new PgOutputDecoder();
+
+    @Test
+    void decode_insertAfterRelation_mapsValuesToColumns() throws IOException {
+        assertNull(decoder.decode(relation(16384, "product_event", "id", "event_type", "lease_owner")));
+
+        PgOutputDecoder.Message message = decoder.decode(insert(16384, "6f1c", "ProductCreated", null));
+
+        PgOutputDecoder.Insert insert = assertInstanceOf(PgOutputDecoder.Insert.class, message);
+        assertEquals("product_event", insert.table());
+        assertEquals("6f1c", insert.values().get("id"));
+        assertEquals("ProductCreated", insert.values().get("event_type"));
+        assertTrue(insert.values().containsKey("lease_owner"));
+        assertNull(insert.values().get("lease_owner"));
+    }
+
+    @Test
+    void decode_commit_returnsEndLsn() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte('C');
+        out.writeByte(0);
+        out.writeLong(100L);
+        out.writeLong(200L);
+        out.writeLong(0L);
+
+        PgOutputDecoder.Message message = decoder.decode(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertEquals(new PgOutputDecoder.Commit(200L), message);
+    }
+
+    @Test
+    void decode_otherMessages_returnsNull() {
+        assertNull(decoder.decode(ByteBuffer.wrap(new byte[]{'B', 0, 0, 0})));
+    }
+
+    @Test
+    void decode_insertForUnknownRelation_throwsException() throws IOException {
+        assertThrows(IllegalStateException.class, () -> decoder.decode(insert(1, "x")));
+    }
+
+    private static ByteBuffer relation(int relationId, String name, String... columns) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte('R');
+        out.writeInt(relationId);
+        writeString(out, "public");
+        writeString(out, name);
+        out.writeByte('d');
+        out.writeShort(columns.length);
+        for (String column : columns) {
+            out.writeByte(0);
+            writeString(out, column);
+            out.writeInt(25);
+            out.writeInt(-1);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static ByteBuffer insert(int relationId, String... values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte('I');
+        out.writeInt(relationId);
+        out.writeByte('N');
+        out.writeShort(values.length);
+        for (String value : values) {
+            if (value == null) {
+                out.writeByte('n');
+            } else {
+                byte[] text = value.getBytes(StandardCharsets.UTF_8);
+                out.writeByte('t');
+                out.writeInt(text.length);
+                out.write(text);
+            }
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.write(value.getBytes(StandardCharsets.UTF_8));
+        out.writeByte(0);
+    }
+}
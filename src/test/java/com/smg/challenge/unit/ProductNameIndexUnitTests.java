@@ -0,0 +1,115 @@
+package com.smg.challenge.unit;
+
+import com.smg.challenge.dto.ProductSearchHit;
+import com.smg.challenge.service.search.ProductNameIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductNameIndexUnitTests {
+
+    @Test
+    void search_matchesTokenPrefixCaseInsensitive() {
+        ProductNameIndex index = new ProductNameIndex();
+        UUID shoes = UUID.randomUUID();
+        index.upsert(shoes, "Red Running Shoes", 0);
+        index.upsert(UUID.randomUUID(), "Blue Shirt", 0);
+
+        assertEquals(List.of(new ProductSearchHit(shoes, "Red Running Shoes")), index.search("SHO", 10));
+        assertEquals(2, index.search("sh", 10).size());
+        assertTrue(index.search("hoes", 10).isEmpty());
+    }
+
+    @Test
+    void search_requiresAllTokensAndTreatsLastAsPrefix() {
+        ProductNameIndex index = new ProductNameIndex();
+        UUID redShoes = UUID.randomUUID();
+        index.upsert(redShoes, "Red Running Shoes", 0);
+        index.upsert(UUID.randomUUID(), "Red Shirt", 0);
+        index.upsert(UUID.randomUUID(), "Blue Shoes", 0);
+
+        assertEquals(List.of(redShoes), ids(index.search("red sho", 10)));
+        assertEquals(List.of(redShoes), ids(index.search("shoes, red-r", 10)));
+        assertTrue(index.search("green sho", 10).isEmpty());
+    }
+
+    @Test
+    void search_returnsEachProductOnceAndStopsAtLimit() {
+        ProductNameIndex index = new ProductNameIndex();
+        UUID id = UUID.randomUUID();
+        index.upsert(id, "Apple Applesauce", 0);
+        for (int i = 0; i < 5000; i++) {
+            index.upsert(UUID.randomUUID(), "Apricot " + i, 0);
+        }
+
+        assertEquals(List.of(id), ids(index.search("appl", 10)));
+        assertEquals(25, index.search("ap", 25).size());
+        assertEquals(5001, index.size());
+    }
+
+    @Test
+    void upsert_replacesNameAndIgnoresReplays() {
+        ProductNameIndex index = new ProductNameIndex();
+        UUID id = UUID.randomUUID();
+        index.upsert(id, "Old Name", 0);
+        index.upsert(id, "Old Name", 0);
+        index.upsert(id, "New Name", 1);
+
+        assertTrue(index.search("old", 10).isEmpty());
+        assertEquals(List.of(new ProductSearchHit(id, "New Name")), index.search("name", 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void remove_hidesProductUntilIndexedAgain() {
+        ProductNameIndex index = new ProductNameIndex();
+        UUID id = UUID.randomUUID();
+        index.upsert(id, "Desk Lamp", 0);
+        index.remove(id, 0);
+        index.remove(UUID.randomUUID(), 0);
+
+        assertTrue(index.search("lamp", 10).isEmpty());
+        assertEquals(0, index.size());
+
+        index.upsert(id, "Desk Lamp", 1);
+        assertEquals(List.of(id), ids(index.search("desk l", 10)));
+    }
+
+    @Test
+    void upsert_dropsChangesOlderThanHeldVersion() {
+        ProductNameIndex index = new ProductNameIndex();
+        UUID renamed = UUID.randomUUID();
+        index.upsert(renamed, "Reading Lamp", 2);
+        index.upsert(renamed, "Desk Lamp", 1);
+        UUID deleted = UUID.randomUUID();
+        index.upsert(deleted, "Floor Lamp", 3);
+        index.remove(deleted, 3);
+        index.upsert(deleted, "Floor Lamp", 3);
+        UUID deletedUnseen = UUID.randomUUID();
+        index.remove(deletedUnseen, 0);
+        index.upsert(deletedUnseen, "Wall Lamp", 0);
+
+        assertEquals(List.of(new ProductSearchHit(renamed, "Reading Lamp")), index.search("lamp", 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void trimToSize_keepsIndexUsable() {
+        ProductNameIndex index = new ProductNameIndex();
+        UUID first = UUID.randomUUID();
+        index.upsert(first, "Ünïcödé Chair", 0);
+        index.trimToSize();
+        UUID second = UUID.randomUUID();
+        index.upsert(second, "Chair Cushion", 0);
+
+        assertEquals(List.of(first, second), ids(index.search("chair", 10)));
+        assertEquals(List.of(first), ids(index.search("ünï", 10)));
+    }
+
+    private List<UUID> ids(List<ProductSearchHit> hits) {
+        return hits.stream().map(ProductSearchHit::id).toList();
+    }
+}
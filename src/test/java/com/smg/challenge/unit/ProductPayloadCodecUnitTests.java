@@ -0,0 +1,88 @@
+package com.smg.challenge.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smg.challenge.exception.GenericException;
+import com.smg.challenge.model.Product;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductPayloadCodecUnitTests {
+
+    private final ProductPayloadCodec codec = new ProductPayloadCodec(new ObjectMapper().findAndRegisterModules());
+
+    @Test
+    void binary_roundTripsProduct() {
+        Product product = createProduct("Ünïcödé Product", new BigDecimal("123456789012345678.99"));
+
+        Product decoded = codec.decode(codec.encode(product, PayloadFormat.BINARY), PayloadFormat.BINARY);
+
+        assertEquals(product, decoded);
+    }
+
+    @Test
+    void binary_roundTripsVersionAndReadsSchemaVersion1() {
+        Product product = createProduct("Test Product", new BigDecimal("18.99"));
+        product.setVersion(7L);
+        byte[] payload = codec.encode(product, PayloadFormat.BINARY);
+        byte[] schemaVersion1 = Arrays.copyOf(payload, payload.length - Long.BYTES);
+
+        assertEquals(7L, codec.decode(payload, PayloadFormat.BINARY).getVersion());
+        Product decoded = codec.decode(schemaVersion1, PayloadFormat.BINARY, 1);
+        assertNull(decoded.getVersion());
+        assertEquals(product.getName(), decoded.getName());
+        assertEquals(product.getPrice(), decoded.getPrice());
+        // The layout comes from the schema version, not from the payload length
+        assertThrows(GenericException.class, () -> codec.decode(schemaVersion1, PayloadFormat.BINARY, 2));
+        assertThrows(GenericException.class, () -> codec.decode(payload, PayloadFormat.BINARY, 3));
+    }
+
+    @Test
+    void json_roundTripsProduct() {
+        Product product = createProduct("Test Product", new BigDecimal("18.99"));
+
+        Product decoded = codec.decode(codec.encode(product, PayloadFormat.JSON), PayloadFormat.JSON);
+
+        assertEquals(product, decoded);
+    }
+
+    @Test
+    void transcode_convertsJsonToBinary() {
+        Product product = createProduct("Test Product", new BigDecimal("18.99"));
+        byte[] json = codec.encode(product, PayloadFormat.JSON);
+
+        byte[] binary = codec.transcode(json, PayloadFormat.JSON, PayloadFormat.BINARY);
+
+        assertArrayEquals(codec.encode(product, PayloadFormat.BINARY), binary);
+        assertSame(json, codec.transcode(json, PayloadFormat.JSON, PayloadFormat.JSON));
+    }
+
+    @Test
+    void binary_isSmallerThanJson() {
+        Product product = createProduct("Test Product", new BigDecimal("18.99"));
+
+        int jsonBytes = codec.encode(product, PayloadFormat.JSON).length;
+        int binaryBytes = codec.encode(product, PayloadFormat.BINARY).length;
+
+        assertTrue(binaryBytes * 2 < jsonBytes, "binary " + binaryBytes + " bytes vs JSON " + jsonBytes + " bytes");
+    }
+
+    @Test
+    void binary_truncatedPayload_throwsException() {
+        byte[] payload = codec.encode(createProduct("Test Product", BigDecimal.TEN), PayloadFormat.BINARY);
+
+        assertThrows(GenericException.class,
+                () -> codec.decode(Arrays.copyOf(payload, payload.length - 4), PayloadFormat.BINARY));
+    }
+
+    private Product createProduct(String name, BigDecimal price) {
+        return new Product(UUID.randomUUID(), name, price, Instant.ofEpochSecond(1723161600, 123456789), null);
+    }
+}
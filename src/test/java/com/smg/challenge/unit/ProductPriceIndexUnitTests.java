@@ -0,0 +1,160 @@
+package com.smg.challenge.unit;
+
+import com.smg.challenge.service.search.ProductPriceIndex;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductPriceIndexUnitTests {
+
+    @Test
+    void forEachInRange_visitsInclusiveRangeInPriceOrderUpToLimit() {
+        ProductPriceIndex index = new ProductPriceIndex();
+        UUID cheap = UUID.randomUUID();
+        UUID middle = UUID.randomUUID();
+        UUID expensive = UUID.randomUUID();
+        index.put(expensive, 3000, 0);
+        index.put(cheap, 1000, 0);
+        index.put(middle, 2000, 0);
+        index.put(UUID.randomUUID(), 3001, 0);
+
+        assertEquals(List.of(cheap, middle, expensive), range(index, 1000, 3000, 10));
+        assertEquals(List.of(cheap, middle), range(index, 1000, 3000, 2));
+        assertEquals(List.of(middle), range(index, 1001, 2999, 10));
+        assertTrue(range(index, 3002, Long.MAX_VALUE, 10).isEmpty());
+        assertEquals(3, index.countInRange(1000, 3000));
+        assertEquals(4, index.countInRange(0, Long.MAX_VALUE));
+        assertEquals(0, index.countInRange(2000, 1000));
+    }
+
+    @Test
+    void forEachInRange_ordersEqualPricesByUnsignedId() {
+        ProductPriceIndex index = new ProductPriceIndex();
+        UUID high = new UUID(-1L, 0L);
+        UUID low = new UUID(1L, 0L);
+        index.put(high, 500, 0);
+        index.put(low, 500, 0);
+
+        assertEquals(List.of(low, high), range(index, 500, 500, 10));
+    }
+
+    @Test
+    void put_movesRepricedProductAndIgnoresReplays() {
+        ProductPriceIndex index = new ProductPriceIndex();
+        UUID id = UUID.randomUUID();
+        index.put(id, 1000, 0);
+        index.put(id, 1000, 0);
+        index.put(id, 2500, 1);
+
+        assertEquals(1, index.size());
+        assertTrue(range(index, 1000, 1000, 10).isEmpty());
+        assertEquals(List.of(id), range(index, 2500, 2500, 10));
+        assertEquals(2500, index.stats().averageCents());
+    }
+
+    @Test
+    void remove_dropsProductAndItsPriceFromStats() {
+        ProductPriceIndex index = new ProductPriceIndex();
+        UUID id = UUID.randomUUID();
+        index.put(id, 100, 0);
+        index.put(UUID.randomUUID(), 300, 0);
+        index.remove(id, 0);
+        index.remove(UUID.randomUUID(), 0);
+
+        ProductPriceIndex.Stats stats = index.stats();
+        assertEquals(1, stats.count());
+        assertEquals(300, stats.minCents());
+        assertEquals(300, stats.averageCents());
+
+        index.put(id, 100, 1);
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void put_dropsChangesOlderThanHeldVersion() {
+        ProductPriceIndex index = new ProductPriceIndex();
+        UUID repriced = UUID.randomUUID();
+        index.put(repriced, 2500, 2);
+        index.put(repriced, 1000, 1);
+        UUID deleted = UUID.randomUUID();
+        index.put(deleted, 700, 3);
+        index.remove(deleted, 3);
+        index.put(deleted, 700, 3);
+        UUID deletedUnseen = UUID.randomUUID();
+        index.remove(deletedUnseen, 0);
+        index.put(deletedUnseen, 900, 0);
+
+        assertEquals(1, index.size());
+        assertEquals(List.of(repriced), range(index, 0, 10_000, 10));
+        assertEquals(2500, index.stats().averageCents());
+    }
+
+    @Test
+    void stats_returnsNearestRankPercentilesAndRoundedAverage() {
+        ProductPriceIndex index = new ProductPriceIndex();
+        for (int cents = 1; cents <= 10; cents++) {
+            index.put(UUID.randomUUID(), cents * 100L, 0);
+        }
+        index.put(UUID.randomUUID(), 1, 0);
+
+        ProductPriceIndex.Stats stats = index.stats(0, 50, 90, 100);
+        assertEquals(11, stats.count());
+        assertEquals(1, stats.minCents());
+        assertEquals(1000, stats.maxCents());
+        // 5501 / 11 = 500.09
+        assertEquals(500, stats.averageCents());
+        assertArrayEquals(new long[]{1, 500, 900, 1000}, stats.percentileCents());
+        assertNull(new ProductPriceIndex().stats(50));
+    }
+
+    @Test
+    void manyChanges_matchSortedReference() {
+        ProductPriceIndex index = new ProductPriceIndex();
+        Random random = new Random(7);
+        UUID[] ids = new UUID[5000];
+        long[] prices = new long[ids.length];
+        long[] versions = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+            prices[i] = -1;
+        }
+        for (int step = 0; step < 40_000; step++) {
+            int i = random.nextInt(ids.length);
+            if (random.nextInt(5) == 0) {
+                index.remove(ids[i], versions[i]++);
+                prices[i] = -1;
+            } else {
+                prices[i] = random.nextInt(2000);
+                index.put(ids[i], prices[i], versions[i]++);
+            }
+        }
+
+        long[] expected = Arrays.stream(prices).filter(price -> price >= 0).sorted().toArray();
+        List<Long> visited = new ArrayList<>();
+        index.forEachInRange(0, Long.MAX_VALUE, Integer.MAX_VALUE, (most, least, cents) -> visited.add(cents));
+        assertArrayEquals(expected, visited.stream().mapToLong(Long::longValue).toArray());
+        assertEquals(Arrays.stream(expected).filter(price -> price >= 500 && price <= 1500).count(),
+                index.countInRange(500, 1500));
+        assertEquals(expected[(expected.length + 1) / 2 - 1], index.stats(50).percentileCents()[0]);
+    }
+
+    @Test
+    void toCents_roundsHalfUpToWholeCents() {
+        assertEquals(1999, ProductPriceIndex.toCents(new BigDecimal("19.99")));
+        assertEquals(1000, ProductPriceIndex.toCents(new BigDecimal("9.995")));
+        assertEquals(new BigDecimal("19.99"), ProductPriceIndex.fromCents(1999));
+    }
+
+    private List<UUID> range(ProductPriceIndex index, long minCents, long maxCents, int limit) {
+        List<UUID> ids = new ArrayList<>();
+        index.forEachInRange(minCents, maxCents, limit, (most, least, cents) -> ids.add(new UUID(most, least)));
+        return ids;
+    }
+}
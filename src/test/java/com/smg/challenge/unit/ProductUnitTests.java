@@ -1,18 +1,57 @@
 package com.smg.challenge.unit;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smg.challenge.dto.ProductCursor;
+import com.smg.challenge.dto.ProductImportError;
+import com.smg.challenge.dto.ProductImportFormat;
+import com.smg.challenge.dto.ProductImportReport;
+import com.smg.challenge.dto.ProductRequest;
 import com.smg.challenge.exception.GenericException;
+import com.smg.challenge.exception.ProductBatchTooLargeException;
+import com.smg.challenge.exception.ProductConflictException;
 import com.smg.challenge.exception.ProductException;
+import com.smg.challenge.exception.ProductExportAbortedException;
+import com.smg.challenge.exception.ProductNotFoundException;
+import com.smg.challenge.mapper.ProductMapperImpl;
 import com.smg.challenge.model.Product;
 import com.smg.challenge.model.ProductEvent;
 import com.smg.challenge.repository.ProductRepository;
+import com.smg.challenge.serialization.ProductPayloadCodec;
 import com.smg.challenge.service.ProductEventService;
+import com.smg.challenge.service.ProductService;
+import com.smg.challenge.service.impl.GroupCommitProductService;
+import com.smg.challenge.service.impl.ProductExportServiceImpl;
+import com.smg.challenge.service.impl.ProductImportServiceImpl;
 import com.smg.challenge.service.impl.ProductServiceImpl;
+import com.smg.challenge.validation.ProductRequestValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.Test;
-
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -28,14 +67,14 @@ class ProductUnitTests {
         ProductEventService productEventService = mock(ProductEventService.class);
         ObjectMapper objectMapper = mock(ObjectMapper.class);
 
-        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, objectMapper);
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
 
         Product inputProduct = createProduct(null, productName, productPrice);
         UUID savedId = UUID.randomUUID();
         Product savedProduct = createProduct(savedId, productName, productPrice);
 
         when(productRepository.save(inputProduct)).thenReturn(savedProduct);
-        when(objectMapper.writeValueAsString(savedProduct)).thenReturn("{\"id\":\"abc\"}");
+        when(objectMapper.writeValueAsBytes(savedProduct)).thenReturn("{\"id\":\"abc\"}".getBytes(StandardCharsets.UTF_8));
 
         Product result = productService.createProduct(inputProduct);
 
@@ -50,7 +89,7 @@ class ProductUnitTests {
         ProductEventService productEventService = mock(ProductEventService.class);
         ObjectMapper objectMapper = mock(ObjectMapper.class);
 
-        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, objectMapper);
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
 
         Product inputProduct = new Product();
         inputProduct.setName("Name");
@@ -67,7 +106,7 @@ class ProductUnitTests {
             savedProduct.setCreatedAt(prodArg.getCreatedAt());
             return savedProduct;
         });
-        when(objectMapper.writeValueAsString(any(Product.class))).thenReturn("{}");
+        when(objectMapper.writeValueAsBytes(any(Product.class))).thenReturn("{}".getBytes(StandardCharsets.UTF_8));
 
         Product result = productService.createProduct(inputProduct);
 
@@ -83,7 +122,7 @@ class ProductUnitTests {
         ProductEventService productEventService = mock(ProductEventService.class);
         ObjectMapper objectMapper = mock(ObjectMapper.class);
 
-        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, objectMapper);
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
 
         Product inputProduct = new Product();
         inputProduct.setName("Name");
@@ -95,7 +134,7 @@ class ProductUnitTests {
         savedProduct.setPrice(BigDecimal.TEN);
 
         when(productRepository.save(any(Product.class))).thenReturn(savedProduct);
-        doThrow(new RuntimeException("Serialization error"){}).when(objectMapper).writeValueAsString(any(Product.class));
+        doThrow(new RuntimeException("Serialization error"){}).when(objectMapper).writeValueAsBytes(any(Product.class));
 
         assertThrows(GenericException.class, () -> productService.createProduct(inputProduct));
     }
@@ -106,7 +145,7 @@ class ProductUnitTests {
         ProductEventService productEventService = mock(ProductEventService.class);
         ObjectMapper objectMapper = mock(ObjectMapper.class);
 
-        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, objectMapper);
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
 
         Product inputProduct = new Product();
         inputProduct.setName("Name");
@@ -118,7 +157,7 @@ class ProductUnitTests {
         savedProduct.setPrice(BigDecimal.TEN);
 
         when(productRepository.save(any(Product.class))).thenReturn(savedProduct);
-        when(objectMapper.writeValueAsString(any(Product.class))).thenThrow(new com.fasterxml.jackson.core.JsonProcessingException("JSON error"){});
+        when(objectMapper.writeValueAsBytes(any(Product.class))).thenThrow(new com.fasterxml.jackson.core.JsonProcessingException("JSON error"){});
 
         assertThrows(GenericException.class, () -> productService.createProduct(inputProduct));
     }
@@ -129,11 +168,422 @@ class ProductUnitTests {
         ProductEventService productEventService = mock(ProductEventService.class);
         ObjectMapper objectMapper = mock(ObjectMapper.class);
 
-        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, objectMapper);
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
 
         assertThrows(ProductException.class, () -> productService.createProduct(null));
     }
 
+    @Test
+    void createProducts_savesProductsAndEventsInChunks() throws Exception {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductEventService productEventService = mock(ProductEventService.class);
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+
+        EntityManager entityManager = mock(EntityManager.class);
+
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(productService, "entityManager", entityManager);
+
+        List<Product> products = new java.util.ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            products.add(createProduct(null, "Name" + i, BigDecimal.TEN));
+        }
+
+        when(productRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            List<Product> chunk = invocation.getArgument(0);
+            chunk.forEach(product -> product.setId(UUID.randomUUID()));
+            return chunk;
+        });
+        when(objectMapper.writeValueAsBytes(any(Product.class))).thenReturn("{}".getBytes(StandardCharsets.UTF_8));
+
+        List<Product> result = productService.createProducts(products);
+
+        assertEquals(1200, result.size());
+        assertTrue(result.stream().allMatch(product -> product.getId() != null && product.getCreatedAt() != null));
+        verify(productRepository, times(3)).saveAllAndFlush(anyList());
+        verify(productEventService, times(3)).saveAll(anyList());
+        verify(productRepository, never()).save(any(Product.class));
+        verify(entityManager, times(3)).clear();
+    }
+
+    @Test
+    void createProducts_oversizedBatch_throwsBatchTooLarge() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductEventService productEventService = mock(ProductEventService.class);
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(productService, "batchMaxSize", 2);
+
+        List<Product> products = List.of(createProduct(null, "A", BigDecimal.TEN), createProduct(null, "B", BigDecimal.TEN),
+                createProduct(null, "C", BigDecimal.TEN));
+
+        assertThrows(ProductBatchTooLargeException.class, () -> productService.createProducts(products));
+        verifyNoInteractions(productRepository, productEventService);
+    }
+
+    @Test
+    void init_rejectsNonPositiveChunkSize() {
+        ProductServiceImpl productService = new ProductServiceImpl(mock(ProductRepository.class), mock(ProductEventService.class),
+                new ProductPayloadCodec(mock(ObjectMapper.class)), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(productService, "batchChunkSize", 0);
+
+        assertThrows(IllegalStateException.class, productService::init);
+    }
+
+    @Test
+    void createProducts_emptyBatch_throwsException() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductEventService productEventService = mock(ProductEventService.class);
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
+
+        assertThrows(ProductException.class, () -> productService.createProducts(List.of()));
+    }
+
+    @Test
+    void validate_rejectsNamesLongerThanTheColumn() {
+        ProductRequestValidator validator = new ProductRequestValidator(Validation.buildDefaultValidatorFactory().getValidator());
+
+        assertEquals(List.of(), validator.validate(new ProductRequest("x".repeat(100), BigDecimal.ONE)));
+        assertEquals(List.of("Name must be at most 100 characters"),
+                validator.validate(new ProductRequest("x".repeat(101), BigDecimal.ONE)));
+    }
+
+    @Test
+    void getProduct_missingProduct_throwsNotFound() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductEventService productEventService = mock(ProductEventService.class);
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
+
+        UUID id = UUID.randomUUID();
+        when(productRepository.findById(id)).thenReturn(Optional.empty());
+
+        assertThrows(ProductNotFoundException.class, () -> productService.getProduct(id));
+    }
+
+    @Test
+    void getProduct_cachesCopyAndHandsEveryCallerItsOwnProduct() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductEventService productEventService = mock(ProductEventService.class);
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
+
+        UUID id = UUID.randomUUID();
+        when(productRepository.findById(id)).thenReturn(Optional.of(createProduct(id, "Name", BigDecimal.TEN)));
+
+        Product first = productService.getProduct(id);
+        first.setName("Changed by caller");
+        Product second = productService.getProduct(id);
+
+        assertNotSame(first, second);
+        assertEquals("Name", second.getName());
+        verify(productRepository, times(1)).findById(id);
+    }
+
+    @Test
+    void updateProduct_writesProductUpdatedEvent() throws Exception {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductEventService productEventService = mock(ProductEventService.class);
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
+
+        UUID id = UUID.randomUUID();
+        Product existing = createProduct(id, "Name", new BigDecimal("10.00"));
+        existing.setVersion(3L);
+        when(productRepository.findById(id)).thenReturn(Optional.of(existing));
+        when(productRepository.saveAndFlush(existing)).thenAnswer(invocation -> {
+            existing.setVersion(4L);
+            return existing;
+        });
+        when(objectMapper.writeValueAsBytes(any(Product.class))).thenReturn("{}".getBytes(StandardCharsets.UTF_8));
+
+        Product result = productService.updateProduct(id, createProduct(null, "Name", new BigDecimal("8.50")), 3L);
+
+        assertEquals(new BigDecimal("8.50"), result.getPrice());
+        assertEquals(4L, result.getVersion());
+        verify(productEventService).save(argThat(event ->
+                event.getAggregateId().equals(id) && event.getEventType().equals("ProductUpdated")));
+    }
+
+    @Test
+    void updateProduct_unchangedProduct_writesNothing() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductEventService productEventService = mock(ProductEventService.class);
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
+
+        UUID id = UUID.randomUUID();
+        Product existing = createProduct(id, "Name", new BigDecimal("10.00"));
+        existing.setVersion(3L);
+        when(productRepository.findById(id)).thenReturn(Optional.of(existing));
+
+        productService.updateProduct(id, createProduct(null, "Name", BigDecimal.TEN), 3L);
+
+        verify(productRepository, never()).saveAndFlush(any(Product.class));
+        verify(productEventService, never()).save(any(ProductEvent.class));
+    }
+
+    @Test
+    void updateProduct_staleVersion_throwsConflict() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductEventService productEventService = mock(ProductEventService.class);
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
+
+        UUID id = UUID.randomUUID();
+        Product existing = createProduct(id, "Name", BigDecimal.TEN);
+        existing.setVersion(4L);
+        when(productRepository.findById(id)).thenReturn(Optional.of(existing));
+
+        assertThrows(ProductConflictException.class,
+                () -> productService.updateProduct(id, createProduct(null, "Name", BigDecimal.ONE), 3L));
+        verify(productEventService, never()).save(any(ProductEvent.class));
+    }
+
+    @Test
+    void updateProduct_concurrentUpdate_throwsConflict() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductEventService productEventService = mock(ProductEventService.class);
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
+
+        UUID id = UUID.randomUUID();
+        Product existing = createProduct(id, "Name", BigDecimal.TEN);
+        existing.setVersion(3L);
+        when(productRepository.findById(id)).thenReturn(Optional.of(existing));
+        when(productRepository.saveAndFlush(existing))
+                .thenThrow(new org.springframework.orm.ObjectOptimisticLockingFailureException(Product.class, id));
+
+        assertThrows(ProductConflictException.class,
+                () -> productService.updateProduct(id, createProduct(null, "Name", BigDecimal.ONE), 3L));
+        verify(productEventService, never()).save(any(ProductEvent.class));
+    }
+
+    @Test
+    void deleteProduct_writesProductDeletedEvent() throws Exception {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductEventService productEventService = mock(ProductEventService.class);
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+
+        ProductServiceImpl productService = new ProductServiceImpl(productRepository, productEventService, new ProductPayloadCodec(objectMapper), new SimpleMeterRegistry(), new ConcurrentMapCacheManager());
+
+        UUID id = UUID.randomUUID();
+        Product existing = createProduct(id, "Name", BigDecimal.TEN);
+        existing.setVersion(2L);
+        when(productRepository.findById(id)).thenReturn(Optional.of(existing));
+        when(objectMapper.writeValueAsBytes(any(Product.class))).thenReturn("{}".getBytes(StandardCharsets.UTF_8));
+
+        productService.deleteProduct(id, null);
+
+        verify(productRepository).delete(existing);
+        verify(productEventService).save(argThat(event ->
+                event.getAggregateId().equals(id) && event.getEventType().equals("ProductDeleted")));
+    }
+
+    @Test
+    void productCursor_roundTrips() {
+        ProductCursor cursor = new ProductCursor(Instant.ofEpochSecond(1723161600, 123456000), UUID.randomUUID());
+
+        assertEquals(cursor, ProductCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void productCursor_invalidToken_throwsException() {
+        assertThrows(GenericException.class, () -> ProductCursor.decode("not-a-cursor"));
+    }
+
+    @Test
+    void importProducts_csv_createsValidRecordsInChunksAndReportsInvalidOnes() {
+        ProductService productService = mock(ProductService.class);
+        ProductImportServiceImpl importService = createImportService(productService);
+
+        String csv = """
+                price,name
+                10.50,"Wheel, 17 inch"
+                0,Free Product
+                not-a-number,Broken
+                12.00,"Seat ""Comfort""\"
+                5,Mirror
+                """;
+
+        ProductImportReport report = importService.importProducts(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ProductImportFormat.CSV);
+
+        assertEquals(5, report.recordsRead());
+        assertEquals(3, report.created());
+        assertEquals(2, report.rejected());
+        assertEquals(2, report.chunksCommitted());
+        assertEquals(3, report.errors().getFirst().fromLine());
+        assertEquals(List.of("Price must be greater than zero"), report.errors().getFirst().errors());
+        verify(productService).createProducts(argThat(products -> products.size() == 2
+                && products.get(0).getName().equals("Wheel, 17 inch")
+                && products.get(1).getName().equals("Seat \"Comfort\"")));
+    }
+
+    @Test
+    void importProducts_ndjson_retriesFailedChunkPerRecordAndContinues() {
+        ProductService productService = mock(ProductService.class);
+        ProductImportServiceImpl importService = createImportService(productService);
+        when(productService.createProducts(anyList()))
+                .thenThrow(new RuntimeException("Value too long"))
+                .thenReturn(List.of());
+        when(productService.createProduct(argThat(product -> product.getName().equals("B"))))
+                .thenThrow(new RuntimeException("Value too long"));
+
+        String ndjson = """
+                {"name":"A","price":1}
+                {"name":"B","price":2}
+                {"name":
+                {"name":"C","price":3}
+                """;
+
+        ProductImportReport report = importService.importProducts(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ProductImportFormat.NDJSON);
+
+        assertEquals(4, report.recordsRead());
+        assertEquals(2, report.created());
+        assertEquals(2, report.rejected());
+        assertEquals(1, report.chunksFailed());
+        assertEquals(1, report.chunksCommitted());
+        assertEquals(List.of(2L, 3L), report.errors().stream().map(ProductImportError::fromLine).sorted().toList());
+        verify(productService, times(2)).createProduct(any(Product.class));
+    }
+
+    @Test
+    void importProducts_rejectsLinesLongerThanTheLimit() {
+        ProductService productService = mock(ProductService.class);
+        ProductImportServiceImpl importService = createImportService(productService);
+        ReflectionTestUtils.setField(importService, "maxLineLength", 30);
+
+        String ndjson = "{\"name\":\"A\",\"price\":1}\r\n{\"name\":\"" + "x".repeat(100) + "\",\"price\":2}\n{\"name\":\"C\",\"price\":3}";
+
+        ProductImportReport report = importService.importProducts(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ProductImportFormat.NDJSON);
+
+        assertEquals(3, report.recordsRead());
+        assertEquals(2, report.created());
+        assertEquals(1, report.rejected());
+        assertEquals(2, report.errors().getFirst().fromLine());
+        verify(productService).createProducts(argThat(products -> products.size() == 2
+                && products.get(0).getName().equals("A") && products.get(1).getName().equals("C")));
+    }
+
+    @Test
+    void exportProducts_failureBeforeFirstRow_writesNothing() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doThrow(new DataAccessResourceFailureException("Database down"))
+                .when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        ProductExportServiceImpl exportService = new ProductExportServiceImpl(jdbcTemplate, new ObjectMapper());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertThrows(ProductException.class, () -> exportService.exportProducts(output));
+        assertEquals(0, output.size());
+    }
+
+    @Test
+    void exportProducts_failureAfterFirstRow_abortsWithoutGzipTrailer() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getObject("id", UUID.class)).thenReturn(UUID.randomUUID());
+        when(resultSet.getString("name")).thenReturn("Name");
+        when(resultSet.getBigDecimal("price")).thenReturn(BigDecimal.TEN);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < 10_000; i++) {
+                handler.processRow(resultSet);
+            }
+            throw new DataAccessResourceFailureException("Connection reset");
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        ProductExportServiceImpl exportService = new ProductExportServiceImpl(jdbcTemplate, new ObjectMapper());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertThrows(ProductExportAbortedException.class, () -> exportService.exportProducts(output));
+        assertTrue(output.size() > 0);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            assertThrows(EOFException.class, gzip::readAllBytes);
+        }
+    }
+
+    @Test
+    void groupCommit_concurrentCreates_areWrittenInOneGroup() throws Exception {
+        ProductService delegate = mock(ProductService.class);
+        when(delegate.createProducts(anyList())).thenAnswer(invocation -> {
+            List<Product> group = invocation.getArgument(0);
+            group.forEach(product -> product.setId(UUID.randomUUID()));
+            return group;
+        });
+        GroupCommitProductService groupCommit = createGroupCommitService(delegate);
+
+        List<Future<Product>> results = new java.util.ArrayList<>();
+        try (ExecutorService callers = Executors.newFixedThreadPool(5)) {
+            for (int i = 0; i < 5; i++) {
+                Product product = createProduct(null, "Name" + i, BigDecimal.TEN);
+                results.add(callers.submit(() -> groupCommit.createProduct(product)));
+            }
+            for (int i = 0; i < 5; i++) {
+                Product created = results.get(i).get(5, TimeUnit.SECONDS);
+                assertNotNull(created.getId());
+            }
+        } finally {
+            groupCommit.stop();
+        }
+
+        verify(delegate, times(1)).createProducts(argThat(group -> group.size() == 5));
+        verify(delegate, never()).createProduct(any(Product.class));
+    }
+
+    @Test
+    void groupCommit_failedGroup_reportsErrorOnlyToFailingCaller() throws Exception {
+        ProductService delegate = mock(ProductService.class);
+        when(delegate.createProducts(anyList())).thenThrow(new ProductException("Batch failed"));
+        when(delegate.createProduct(any(Product.class))).thenAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            if (product.getName().equals("Bad")) {
+                throw new ProductException("Product is invalid");
+            }
+            product.setId(UUID.randomUUID());
+            return product;
+        });
+        GroupCommitProductService groupCommit = createGroupCommitService(delegate);
+
+        try (ExecutorService callers = Executors.newFixedThreadPool(2)) {
+            Future<Product> good = callers.submit(() -> groupCommit.createProduct(createProduct(null, "Good", BigDecimal.TEN)));
+            Future<Product> bad = callers.submit(() -> groupCommit.createProduct(createProduct(null, "Bad", BigDecimal.TEN)));
+
+            assertNotNull(good.get(5, TimeUnit.SECONDS).getId());
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(ProductException.class, failure.getCause());
+        } finally {
+            groupCommit.stop();
+        }
+    }
+
+    private GroupCommitProductService createGroupCommitService(ProductService delegate) {
+        GroupCommitProductService groupCommit = new GroupCommitProductService(delegate, new SimpleMeterRegistry());
+        // A long window so all concurrent callers of a test land in the same group
+        ReflectionTestUtils.setField(groupCommit, "maxWait", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(groupCommit, "writers", 1);
+        groupCommit.start();
+        return groupCommit;
+    }
+
+    private ProductImportServiceImpl createImportService(ProductService productService) {
+        ProductImportServiceImpl importService = new ProductImportServiceImpl(productService, new ProductMapperImpl(),
+                new ProductRequestValidator(Validation.buildDefaultValidatorFactory().getValidator()),
+                new ObjectMapper());
+        ReflectionTestUtils.setField(importService, "chunkSize", 2);
+        return importService;
+    }
+
     private Product createProduct(UUID id, String name, BigDecimal price) {
         Product product = new Product();
         product.setId(id);
@@ -0,0 +1,485 @@
+package com.smg.challenge.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smg.challenge.model.Product;
+import com.smg.challenge.model.ProductEvent;
+import com.smg.challenge.serialization.PayloadFormat;
+import com.smg.challenge.serialization.ProductPayloadCodec;
+import com.smg.challenge.service.ProductEventService;
+import com.smg.challenge.service.publisher.PublishScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class PublishSchedulerUnitTests {
+
+    private final ProductPayloadCodec payloadCodec = new ProductPayloadCodec(new ObjectMapper().findAndRegisterModules());
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_marksAllAckedEventsWithSingleBulkUpdate() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+
+        List<ProductEvent> events = createEvents(20);
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(events, List.of());
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        scheduler.publishEvents();
+
+        verify(productEventService, times(1)).markPublished(argThat((Collection<UUID> ids) -> ids.size() == 20));
+        verify(productEventService, never()).markPublished(any(UUID.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_doesNotMarkFailedEvents() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+
+        List<ProductEvent> events = createEvents(2);
+        String failingKey = events.get(1).getAggregateId().toString();
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(events);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, byte[]> producerRecord = invocation.getArgument(0);
+            return failingKey.equals(producerRecord.key())
+                    ? CompletableFuture.failedFuture(new RuntimeException("Broker down"))
+                    : CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+
+        scheduler.publishEvents();
+
+        verify(productEventService).markPublished(argThat((Collection<UUID> ids) ->
+                ids.size() == 1 && ids.contains(events.get(0).getId())));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_recordsBatchAndSendMetrics() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, meterRegistry);
+
+        List<ProductEvent> events = createEvents(3);
+        String failingKey = events.get(2).getAggregateId().toString();
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(events, List.of());
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, byte[]> producerRecord = invocation.getArgument(0);
+            return failingKey.equals(producerRecord.key())
+                    ? CompletableFuture.failedFuture(new RuntimeException("Broker down"))
+                    : CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+
+        scheduler.publishEvents();
+
+        assertEquals(2, meterRegistry.get("outbox.events.published").counter().count());
+        assertEquals(1, meterRegistry.get("outbox.kafka.send.failures").counter().count());
+        assertEquals(2, meterRegistry.get("outbox.kafka.send").timer().count());
+        assertEquals(3, meterRegistry.get("outbox.publish.batch.size").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("outbox.mark.published").timer().count());
+    }
+
+    @Test
+    void publishEvents_noEvents_doesNotTouchDatabase() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        @SuppressWarnings("unchecked")
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(List.of());
+
+        scheduler.publishEvents();
+
+        verify(productEventService, never()).markPublished(anyCollection());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_keepsDrainingAndGrowsBatchWhileBatchesAreFull() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+
+        when(productEventService.claimUnpublished(anyString(), eq(20), any(Duration.class))).thenReturn(createEvents(20));
+        when(productEventService.claimUnpublished(anyString(), eq(40), any(Duration.class))).thenReturn(createEvents(40));
+        when(productEventService.claimUnpublished(anyString(), eq(80), any(Duration.class))).thenReturn(createEvents(5));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        scheduler.publishEvents();
+
+        verify(productEventService, times(3)).claimUnpublished(anyString(), anyInt(), any(Duration.class));
+        verify(productEventService, times(3)).markPublished(anyCollection());
+        assertEquals(Duration.ofMillis(50), scheduler.getNextDelay());
+    }
+
+    @Test
+    void publishEvents_backsOffExponentiallyWhenIdle() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        @SuppressWarnings("unchecked")
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(List.of());
+
+        scheduler.publishEvents();
+        assertEquals(Duration.ofMillis(50), scheduler.getNextDelay());
+        scheduler.publishEvents();
+        assertEquals(Duration.ofMillis(100), scheduler.getNextDelay());
+        for (int i = 0; i < 10; i++) {
+            scheduler.publishEvents();
+        }
+        assertEquals(Duration.ofSeconds(5), scheduler.getNextDelay());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_keysRecordsByAggregateIdInClaimOrder() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+
+        List<ProductEvent> events = createEvents(3);
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(events);
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        scheduler.publishEvents();
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(3)).send(records.capture());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals("products", records.getAllValues().get(i).topic());
+            assertEquals(events.get(i).getAggregateId().toString(), records.getAllValues().get(i).key());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_transcodesToTopicFormatAndAddsSchemaHeaders() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "topicFormat", PayloadFormat.BINARY);
+
+        Product product = new Product(UUID.randomUUID(), "Name", new BigDecimal("19.99"), Instant.now(), 0L);
+        ProductEvent event = createEvents(1).getFirst();
+        event.setPayload(payloadCodec.encode(product, PayloadFormat.JSON));
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(List.of(event));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        scheduler.publishEvents();
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(records.capture());
+        ProducerRecord<String, byte[]> sent = records.getValue();
+        assertArrayEquals(payloadCodec.encode(product, PayloadFormat.BINARY), sent.value());
+        assertEquals(PayloadFormat.BINARY.getContentType(),
+                new String(sent.headers().lastHeader(PublishScheduler.CONTENT_TYPE_HEADER).value(), StandardCharsets.UTF_8));
+        assertEquals("2",
+                new String(sent.headers().lastHeader(PublishScheduler.SCHEMA_VERSION_HEADER).value(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_jsonTopic_hasNoSchemaVersionHeader() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(createEvents(1));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        scheduler.publishEvents();
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(records.capture());
+        assertEquals(PayloadFormat.JSON.getContentType(),
+                new String(records.getValue().headers().lastHeader(PublishScheduler.CONTENT_TYPE_HEADER).value(), StandardCharsets.UTF_8));
+        assertNull(records.getValue().headers().lastHeader(PublishScheduler.SCHEMA_VERSION_HEADER));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_sendsStoredBinaryPayloadWithItsSchemaVersion() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "topicFormat", PayloadFormat.BINARY);
+
+        // A row written before payload_schema_version existed holds schema version 1
+        Product product = new Product(UUID.randomUUID(), "Name", new BigDecimal("19.99"), Instant.now(), null);
+        byte[] payload = payloadCodec.encode(product, PayloadFormat.BINARY);
+        byte[] schemaVersion1 = Arrays.copyOf(payload, payload.length - Long.BYTES);
+        ProductEvent event = createEvents(1).getFirst();
+        event.setPayload(schemaVersion1);
+        event.setPayloadFormat(PayloadFormat.BINARY);
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(List.of(event));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        scheduler.publishEvents();
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(records.capture());
+        assertArrayEquals(schemaVersion1, records.getValue().value());
+        assertEquals("1", new String(records.getValue().headers().lastHeader(PublishScheduler.SCHEMA_VERSION_HEADER).value(),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_coalescesEventsOfSameProductToLatest() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, meterRegistry);
+
+        List<ProductEvent> events = createEvents(4);
+        UUID repriced = events.get(0).getAggregateId();
+        events.get(2).setAggregateId(repriced);
+        events.get(2).setEventType("ProductUpdated");
+        events.get(3).setAggregateId(repriced);
+        events.get(3).setEventType("ProductUpdated");
+        events.get(0).setPayload(productPayload(repriced, 0));
+        events.get(2).setPayload(productPayload(repriced, 1));
+        events.get(3).setPayload(productPayload(repriced, 2));
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(events, List.of());
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        scheduler.publishEvents();
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(records.capture());
+        ProducerRecord<String, byte[]> last = records.getAllValues().getLast();
+        assertEquals(repriced.toString(), last.key());
+        assertArrayEquals(events.get(3).getPayload(), last.value());
+        assertEquals("ProductUpdated",
+                new String(last.headers().lastHeader(PublishScheduler.EVENT_TYPE_HEADER).value(), StandardCharsets.UTF_8));
+        verify(productEventService).markPublished(argThat((Collection<UUID> ids) -> ids.size() == 4));
+        assertEquals(2, meterRegistry.get("outbox.events.coalesced").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_coalescesToHighestVersionNotLastPosition() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+
+        // The later update was written on an instance whose clock is behind, so it sorts first
+        List<ProductEvent> events = createEvents(2);
+        UUID repriced = events.get(0).getAggregateId();
+        events.get(0).setPayload(productPayload(repriced, 2));
+        events.get(1).setAggregateId(repriced);
+        events.get(1).setPayload(productPayload(repriced, 1));
+        events.forEach(event -> event.setEventType("ProductUpdated"));
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(events, List.of());
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        scheduler.publishEvents();
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(records.capture());
+        assertArrayEquals(events.get(0).getPayload(), records.getValue().value());
+        verify(productEventService).markPublished(argThat((Collection<UUID> ids) -> ids.size() == 2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_keepsUnacknowledgedEventsInFlightWithoutResendingThem() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "ackTimeout", Duration.ofMillis(10));
+
+        List<ProductEvent> events = createEvents(1);
+        CompletableFuture<SendResult<String, byte[]>> ack = new CompletableFuture<>();
+        // Claimed again after its lease ran out while the ack was outstanding
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(events, events, List.of());
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(ack);
+
+        scheduler.publishEvents();
+        scheduler.publishEvents();
+        assertEquals(1, scheduler.getInFlight());
+        verify(productEventService, never()).markPublished(anyCollection());
+
+        ack.complete(mock(SendResult.class));
+        scheduler.publishEvents();
+
+        verify(kafkaTemplate, times(1)).send(any(ProducerRecord.class));
+        verify(productEventService).markPublished(argThat((Collection<UUID> ids) -> ids.equals(List.of(events.getFirst().getId()))));
+        assertEquals(0, scheduler.getInFlight());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_stopsClaimingWhileInFlightWindowIsFull() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "ackTimeout", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(scheduler, "maxInFlight", 2);
+
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(createEvents(2));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+
+        scheduler.publishEvents();
+        scheduler.publishEvents();
+
+        verify(productEventService, times(1)).claimUnpublished(anyString(), eq(2), any(Duration.class));
+        assertEquals(2, scheduler.getInFlight());
+        assertEquals(Duration.ofMillis(50), scheduler.getNextDelay());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_retriesRetriableFailureWithExponentialBackoffBelowItsCap() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, meterRegistry);
+
+        List<ProductEvent> events = createEvents(2);
+        events.get(0).setAttempts(2);
+        events.get(1).setAttempts(20);
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(events, List.of());
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("Broker down")));
+
+        Instant before = Instant.now();
+        scheduler.publishEvents();
+        Instant after = Instant.now();
+
+        // Third attempt waits 1s * 2^2, the twenty-first is capped at 1m
+        verify(productEventService).scheduleRetry(eq(List.of(events.get(0).getId())),
+                argThat(at -> !at.isBefore(before.plusSeconds(4)) && !at.isAfter(after.plusSeconds(4))), anyString());
+        verify(productEventService).scheduleRetry(eq(List.of(events.get(1).getId())),
+                argThat(at -> !at.isBefore(before.plusSeconds(60)) && !at.isAfter(after.plusSeconds(60))), anyString());
+        verify(productEventService, never()).deadLetter(anyCollection(), any());
+        assertEquals(2, meterRegistry.get("outbox.events.retried").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_deadLettersRetriableFailureAfterMaxRetriableAttempts() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, meterRegistry);
+        ReflectionTestUtils.setField(scheduler, "maxRetriableAttempts", 10);
+
+        List<ProductEvent> events = createEvents(2);
+        events.get(0).setAttempts(9);
+        events.get(1).setAttempts(8);
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(events, List.of());
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("Rejected")));
+
+        scheduler.publishEvents();
+
+        verify(productEventService).deadLetter(eq(List.of(events.get(0).getId())),
+                argThat((String error) -> error.contains("TimeoutException")));
+        verify(productEventService).scheduleRetry(eq(List.of(events.get(1).getId())), any(Instant.class), anyString());
+        assertEquals(1, meterRegistry.get("outbox.events.dead.lettered").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_deadLettersNonRetriableFailureAfterMaxAttempts() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, meterRegistry);
+
+        List<ProductEvent> events = createEvents(2);
+        events.get(0).setAttempts(4);
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class))).thenReturn(events, List.of());
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RecordTooLargeException("Too large")));
+
+        scheduler.publishEvents();
+
+        verify(productEventService).deadLetter(eq(List.of(events.get(0).getId())),
+                argThat((String error) -> error.contains("RecordTooLargeException")));
+        verify(productEventService).scheduleRetry(eq(List.of(events.get(1).getId())), any(Instant.class), anyString());
+        assertEquals(1, meterRegistry.get("outbox.events.dead.lettered").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishEvents_releasesBackedOffEventsOnceKafkaAcknowledgesAgain() {
+        ProductEventService productEventService = mock(ProductEventService.class);
+        KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        PublishScheduler scheduler = new PublishScheduler(productEventService, kafkaTemplate, payloadCodec, new SimpleMeterRegistry());
+
+        when(productEventService.claimUnpublished(anyString(), anyInt(), any(Duration.class)))
+                .thenReturn(createEvents(3), createEvents(1), createEvents(1));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("Broker down")))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        scheduler.publishEvents();
+        scheduler.publishEvents();
+        scheduler.publishEvents();
+
+        // One blocked send fails the rest of its batch without calling the producer again
+        verify(kafkaTemplate, times(3)).send(any(ProducerRecord.class));
+        verify(productEventService).scheduleRetry(argThat((Collection<UUID> ids) -> ids.size() == 3), any(Instant.class), anyString());
+        verify(productEventService, times(1)).releaseRetries();
+    }
+
+    private byte[] productPayload(UUID id, long version) {
+        return payloadCodec.encode(new Product(id, "Repriced", BigDecimal.valueOf(version + 1), Instant.now(), version),
+                PayloadFormat.JSON);
+    }
+
+    private List<ProductEvent> createEvents(int count) {
+        List<ProductEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(ProductEvent.builder()
+                    .id(UUID.randomUUID())
+                    .aggregateType("Product")
+                    .aggregateId(UUID.randomUUID())
+                    .eventType("ProductCreated")
+                    .payload(("{\"n\":" + i + "}").getBytes(StandardCharsets.UTF_8))
+                    .payloadFormat(PayloadFormat.JSON)
+                    .createdAt(Instant.now())
+                    .build());
+        }
+        return events;
+    }
+}